@@ -0,0 +1,72 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prNet.manipulable.ManipulablePattern;
+import prNet.manipulable.ManipulationUsage;
+
+/**
+ * Manipulating a list with a pattern that matches its end, the transition doesn't change anything.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(2)
+public class ManipulateBenchmark {
+	
+	@Param({"64", "512"})
+	public int size;
+	
+	@Param({"0", "25", "50"})
+	public int wildcards;
+	
+	@Param({"2", "16"})
+	public int alphabet;
+	
+	private List<Integer> environment;
+	
+	private ManipulablePattern<Integer> pattern;
+	
+	@Setup
+	public void setup() {
+		Random random=new Random(Workloads.SEED);
+		Comparison<Integer, Integer> comparison=Comparison.byKey((Integer o)->o);
+		environment=Workloads.randomList(random, size, alphabet);
+		int length=size/4;
+		
+		List<Integer> elements=new ArrayList<>();
+		elements.add(null);
+		elements.addAll(Workloads.patternOf(random, environment.subList(environment.size()-length, environment.size()), length, wildcards));
+		pattern=new ManipulablePattern<>(elements, comparison, (toChange, patternPart)->{});
+	}
+	
+	@Benchmark
+	public boolean manipulate() {
+		return ManipulationUsage.manipulate(environment, pattern);
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching patterns with wildcards anywhere in a list. Every pattern is a part of a list between two wildcards and
+ * ends with the last element of the environment, a pattern can't end with a wildcard. Half of the patterns come from
+ * another list, so not all of them match, every call matches the next one.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(2)
+public class MatchBenchmark {
+	
+	@Param({"256", "4096"})
+	public int size;
+	
+	@Param({"4", "16"})
+	public int length;
+	
+	@Param({"0", "25", "50"})
+	public int wildcards;
+	
+	@Param({"2", "16"})
+	public int alphabet;
+	
+	private List<Integer> environment;
+	
+	private List<Pattern<Integer>> patterns;
+	
+	private int next;
+	
+	@Setup
+	public void setup() {
+		Random random=new Random(Workloads.SEED);
+		Comparison<Integer, Integer> comparison=Comparison.byKey((Integer o)->o);
+		environment=Workloads.randomList(random, size, alphabet);
+		
+		List<Integer> other=Workloads.randomList(random, size, alphabet);
+		patterns=new ArrayList<>();
+		for(int i=0; i<16; i++) {
+			List<Integer> elements=new ArrayList<>();
+			elements.add(null);
+			elements.addAll(Workloads.patternOf(random, i%2==0? environment: other, length, wildcards));
+			elements.add(null);
+			elements.add(environment.get(environment.size()-1));
+			patterns.add(new Pattern<>(elements, comparison));
+		}
+	}
+	
+	@Benchmark
+	public boolean match() {
+		return PatternUsage.match(environment, patterns.get(next++&15));
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import demo.TwoDimensionalMatrix;
+import demo.TwoDimensionalMatrix.Node;
+
+/**
+ * The search of {@link TwoDimensionalMatrix matrices} like in {@link demo.MatrixDemo}.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(2)
+public class MatrixSearchBenchmark {
+	
+	@Param({"5", "8"})
+	public int matrixSize;
+	
+	@Param({"6", "12"})
+	public int quantity;
+	
+	private TwoDimensionalMatrix[] matrices;
+	
+	private Comparison<Node, Node> comparison;
+	
+	@Setup
+	public void setup() {
+		matrices=Workloads.matrices(Workloads.SEED, quantity, matrixSize, matrixSize*matrixSize*4/5);
+		comparison=(a, b)->a.getState()==b.getState();
+	}
+	
+	@Benchmark
+	public List<Pattern<Node>> search() {
+		return PatternUsage.findPatterns(comparison, matrices);
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prNet.AspectManager.Aspect;
+
+/**
+ * Saving patterns as uniques into a temporary database, one by one with
+ * {@link SQLoperations#savePatternAsUniques(Pattern, String, Aspect, Statement)} or batched with
+ * {@link SQLoperations#savePatternsAsUniques(List, String, Aspect, Connection)}, in one transaction per call.
+ * The authors are reused, so after the first calls every pattern updates the count of an existing row. The database
+ * is a temporary file that is deleted after the trial.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(2)
+public class SaveAsUniquesBenchmark {
+	
+	@Param({"false", "true"})
+	public boolean batched;
+	
+	@Param({"100", "1000"})
+	public int patternCount;
+	
+	@Param({"0", "50"})
+	public int wildcards;
+	
+	private Path database;
+	
+	private Connection conn;
+	
+	private Statement stat;
+	
+	private Aspect<Integer> aspect;
+	
+	private List<Pattern<Integer>> patterns;
+	
+	private int round;
+	
+	@Setup
+	public void setup() throws Exception {
+		database=Files.createTempFile("prnet-bench", ".db");
+		conn=DriverManager.getConnection("jdbc:sqlite:"+database);
+		stat=conn.createStatement();
+		aspect=AspectManager.defineIfAbsent("bench", Comparison.byKey((Integer o)->o), "bench", o->""+o, stat);
+		
+		Random random=new Random(Workloads.SEED);
+		List<Integer> source=Workloads.randomList(random, 4096, 16);
+		patterns=new ArrayList<>();
+		for(int i=0; i<patternCount; i++) {
+			patterns.add(new Pattern<>(Workloads.patternOf(random, source, 2+random.nextInt(8), wildcards), aspect.comparison()));
+		}
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception {
+		stat.close();
+		conn.close();
+		Files.deleteIfExists(database);
+	}
+	
+	@Benchmark
+	public String save() throws Exception {
+		String author="author"+(round++&7);
+		stat.executeUpdate("begin");
+		if(batched) {
+			SQLoperations.savePatternsAsUniques(patterns, author, aspect, conn);
+		}else {
+			for(Pattern<Integer> cur:patterns) SQLoperations.savePatternAsUniques(cur, author, aspect, stat);
+		}
+		stat.executeUpdate("commit");
+		return author;
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The search of random lists in all modes, with and without an equivalence key.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(2)
+public class SearchBenchmark {
+	
+	@Param({"LINKED", "INDEXED", "SUFFIX_ARRAY", "MAXIMAL_MATCHES"})
+	public SearchMode mode;
+	
+	@Param({"false", "true"})
+	public boolean keyed;
+	
+	@Param({"6"})
+	public int inputs;
+	
+	@Param({"32", "128"})
+	public int size;
+	
+	@Param({"2", "16"})
+	public int alphabet;
+	
+	private List<List<Integer>> input;
+	
+	private Comparison<Integer, Integer> comparison;
+	
+	@Setup
+	public void setup() {
+		input=Workloads.randomLists(Workloads.SEED, inputs, size, alphabet);
+		comparison=keyed?
+				Comparison.byKey((Integer o)->o):
+				(a, b)->a.intValue()==b.intValue();
+	}
+	
+	@Benchmark
+	public List<Pattern<Integer>> search() {
+		return PatternUsage.findPatterns(comparison, input, mode);
+	}
+}
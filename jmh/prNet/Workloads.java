@@ -0,0 +1,90 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import demo.TwoDimensionalMatrix;
+
+/**
+ * Creates the inputs of the benchmarks. Every generator takes a seed, so all runs measure the same inputs.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+abstract class Workloads {
+	
+	/**
+	 * The seed of all benchmarks.
+	 */
+	public static final long SEED=42;
+	
+	/**
+	 * @param random The source of randomness
+	 * @param size The length of the list
+	 * @param alphabet The amount of different elements
+	 * @return A list of random integers between 0 and alphabet-1
+	 */
+	public static List<Integer> randomList(Random random, int size, int alphabet) {
+		List<Integer> ret=new ArrayList<>(size);
+		for(int i=0; i<size; i++) ret.add(random.nextInt(alphabet));
+		return ret;
+	}
+	
+	/**
+	 * @param seed The seed
+	 * @param count The amount of lists
+	 * @param size The length of every list
+	 * @param alphabet The amount of different elements
+	 * @return Random lists like {@link #randomList(Random, int, int)}
+	 */
+	public static List<List<Integer>> randomLists(long seed, int count, int size, int alphabet) {
+		Random random=new Random(seed);
+		List<List<Integer>> ret=new ArrayList<>(count);
+		for(int i=0; i<count; i++) ret.add(randomList(random, size, alphabet));
+		return ret;
+	}
+	
+	/**
+	 * Cuts a part out of the given list and replaces some of its elements with wildcards. The first and the last
+	 * element are never wildcards and neither are two elements in a row, like in the patterns of a search.
+	 * 
+	 * @param random The source of randomness
+	 * @param source The list the part is taken from
+	 * @param length The length of the part
+	 * @param wildcardPercent The chance of every other element to be a wildcard if the one before isn't
+	 * @return The elements of a pattern that matches at least the source
+	 */
+	public static List<Integer> patternOf(Random random, List<Integer> source, int length, int wildcardPercent) {
+		int start=random.nextInt(source.size()-length+1);
+		List<Integer> ret=new ArrayList<>(source.subList(start, start+length));
+		for(int i=1; i<ret.size()-1; i++) {
+			if(ret.get(i-1)!=null && random.nextInt(100)<wildcardPercent) ret.set(i, null);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Creates matrices like {@link demo.MatrixDemo} does, by flipping random states of empty matrices.
+	 * 
+	 * @param seed The seed
+	 * @param quantity The amount of matrices
+	 * @param size The size of every matrix
+	 * @param flips The amount of flips per matrix
+	 * @return The matrices
+	 */
+	public static TwoDimensionalMatrix[] matrices(long seed, int quantity, int size, int flips) {
+		Random random=new Random(seed);
+		TwoDimensionalMatrix[] ret=new TwoDimensionalMatrix[quantity];
+		for(int i=0; i<quantity; i++) {
+			ret[i]=new TwoDimensionalMatrix(size);
+			for(int j=0; j<flips; j++) ret[i].flipState(random.nextInt(size), random.nextInt(size));
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package demo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import prNet.Comparison;
+import prNet.IncrementalPatternSearch;
+import prNet.Pattern;
+import prNet.PatternUsage;
+
+/**
+ * This class demonstrates the {@link IncrementalPatternSearch} and checks it against a search over all inputs.
+ * It adds random lists one after another and after every list compares the found patterns and their counts with
+ * {@link PatternUsage#findPatterns(Comparison, List)}, once with a comparison that has an equivalence key and once
+ * with one that hasn't. The program exits with 1 if a result differs.
+ * 
+ * @author Elija Giesbrecht
+ */
+public class IncrementalDemo {
+	
+	public static void main(String[] args) {
+		long seed=args.length>0? Long.parseLong(args[0]): 1;
+		int rounds=20, quantity=8, size=12, alphabet=3;
+		
+		Random random=new Random(seed);
+		int mismatches=0;
+		for(int round=0; round<rounds; round++) {
+			//the same inputs with and without an equivalence key
+			List<List<Integer>> inputs=new ArrayList<>();
+			for(int i=0; i<quantity; i++) {
+				List<Integer> cur=new ArrayList<>();
+				for(int j=0; j<size; j++) cur.add(random.nextInt(alphabet));
+				inputs.add(cur);
+			}
+			mismatches+=check(inputs, Comparison.byKey((Integer o)->o));
+			mismatches+=check(inputs, (a, b)->a.intValue()==b.intValue());
+		}
+		
+		System.out.println(rounds*2+" sequences of "+quantity+" inputs checked, "+mismatches+" mismatches");
+		if(mismatches>0) System.exit(1);
+	}
+	
+	/**
+	 * Adds the inputs one after another and compares the patterns after each of them.
+	 * 
+	 * @return The amount of additions whose result differed
+	 */
+	private static int check(List<List<Integer>> inputs, Comparison<Integer, Integer> comparison) {
+		IncrementalPatternSearch<Integer> search=new IncrementalPatternSearch<>(comparison);
+		int ret=0;
+		for(int i=0; i<inputs.size(); i++) {
+			search.add(inputs.get(i));
+			String incremental=describe(search.getPatterns());
+			String full=describe(PatternUsage.findPatterns(comparison, inputs.subList(0, i+1)));
+			if(!incremental.equals(full)) {
+				System.out.println("Mismatch after "+(i+1)+" inputs:\n  incremental: "+incremental+"\n  full search: "+full);
+				ret++;
+			}
+		}
+		return ret;
+	}
+	
+	//the elements and counts of all patterns, independent of their order
+	private static String describe(List<Pattern<Integer>> patterns) {
+		return patterns.stream()
+				.map(o->o.getElements()+"x"+o.getDefaultCount())
+				.sorted()
+				.collect(Collectors.joining(", "));
+	}
+}
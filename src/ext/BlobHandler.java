@@ -11,6 +11,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -18,17 +19,29 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public abstract class BlobHandler {
 	
 	//implements Serializable muss auf alle genutzten Klassen angewendet werden
 	
 	public static <ObjectType extends Serializable> void insert(ObjectType obj, String sqlcondition/*UNBEDINGT an Sytax halten!*/, Connection conn) throws IOException, SQLException {
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-	    ObjectOutputStream oos = new ObjectOutputStream(baos);
-	    oos.writeObject(obj);
-	    
-	    byte[] employeeAsBytes = baos.toByteArray();
+	    insertBlob(serialize(obj), sqlcondition, conn);
+	}
+	
+	/**
+	 * Inserts bytes that were already encoded as the blob of the given statement.
+	 * 
+	 * @param employeeAsBytes The bytes of the blob
+	 * @param sqlcondition The statement, the blob has to be its first parameter
+	 * @param conn The {@link Connection} to the database
+	 * @throws SQLException
+	 */
+	public static void insertBlob(byte[] employeeAsBytes, String sqlcondition/*UNBEDINGT an Sytax halten!*/, Connection conn) throws SQLException {
 	    PreparedStatement pstmt = conn.prepareStatement(sqlcondition);
 	    ByteArrayInputStream bais = new ByteArrayInputStream(employeeAsBytes);
 	    pstmt.setBinaryStream(1, bais, employeeAsBytes.length);
@@ -36,23 +49,125 @@ public abstract class BlobHandler {
 	    pstmt.close();
 	}
 	
+	/**
+	 * Serializes the object into the bytes that are stored in a blob.
+	 * 
+	 * @param obj The object
+	 * @return The serialized object
+	 * @throws IOException
+	 */
+	public static <ObjectType extends Serializable> byte[] serialize(ObjectType obj) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+	    ObjectOutputStream oos = new ObjectOutputStream(baos);
+	    oos.writeObject(obj);
+	    oos.close();
+	    return baos.toByteArray();
+	}
+	
+	/**
+	 * Deserializes an object that was serialized with {@link #serialize(Serializable)}.
+	 * 
+	 * @param blob The bytes of the blob
+	 * @return The object
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@SuppressWarnings("unchecked")
+	public static <ObjectType extends Serializable> ObjectType deserialize(byte[] blob) throws IOException, ClassNotFoundException {
+		ByteArrayInputStream baip = new ByteArrayInputStream(blob);
+		ObjectInputStream ois = new ObjectInputStream(baip);
+		ObjectType ret = (ObjectType) ois.readObject();
+		ois.close();
+		return ret;
+	}
+	
+	/**
+	 * Converts the bytes of a blob into an object.
+	 * 
+	 * @param <ObjectType> The type of the object
+	 */
+	public static interface Decoder <ObjectType> {
+		public ObjectType decode(byte[] blob) throws IOException, ClassNotFoundException;
+	}
+	
 	public static <ObjectType extends Serializable> List<ObjectType> get(String sqlcondition/*MUSS das Blob-Feld zurueckgeben!*/, Connection conn) throws SQLException, ClassNotFoundException, IOException {
+		return get(sqlcondition, conn, BlobHandler::deserialize);
+	}
+	
+	/**
+	 * Reads the blobs of a query and converts them with the given decoder straight from their bytes.
+	 * 
+	 * @param sqlcondition The query, it has to return the blob as its first column
+	 * @param conn The {@link Connection} to the database
+	 * @param decoder Converts the bytes of a blob
+	 * @return All decoded objects or null if the query has no result
+	 */
+	public static <ObjectType> List<ObjectType> get(String sqlcondition/*MUSS das Blob-Feld zurueckgeben!*/, Connection conn, Decoder<? extends ObjectType> decoder) throws SQLException, ClassNotFoundException, IOException {
 		List<ObjectType> ret=new ArrayList<>();
+		try(Statement stat=conn.createStatement(); ResultSet rs=stat.executeQuery(sqlcondition)) {
+			while(rs.next()) {
+				ret.add(decoder.decode(rs.getBytes(1)));
+			}
+		}
+		return ret.isEmpty()? null: ret;
+	}
+	
+	
+	/**
+	 * The fetch size that is used if none is given.
+	 */
+	public static final int DEFAULT_FETCH_SIZE=256;
+	
+	public static <ObjectType extends Serializable> Stream<ObjectType> stream(String sqlcondition/*MUSS das Blob-Feld zurueckgeben!*/, Connection conn) throws SQLException {
+		return stream(sqlcondition, conn, DEFAULT_FETCH_SIZE, BlobHandler::deserialize);
+	}
+	
+	/**
+	 * Reads the blobs of a query lazily. A row is only fetched and decoded when the stream needs the next object,
+	 * so the whole result never has to be kept in memory. The stream keeps the query open until it is closed,
+	 * so it should be used in a try-with-resources block.<p>
+	 * Exceptions while reading are thrown as {@link UncheckedIOException}, an {@link SQLException} or
+	 * {@link ClassNotFoundException} is wrapped into an {@link IOException} first.
+	 * 
+	 * @param sqlcondition The query, it has to return the blob as its first column
+	 * @param conn The {@link Connection} to the database
+	 * @param fetchSize The amount of rows the driver fetches at once
+	 * @param decoder Converts the bytes of a blob
+	 * @return A stream of all decoded objects, it is empty if the query has no result
+	 * @throws SQLException If the query can't be executed
+	 */
+	public static <ObjectType> Stream<ObjectType> stream(String sqlcondition/*MUSS das Blob-Feld zurueckgeben!*/, Connection conn, int fetchSize, Decoder<? extends ObjectType> decoder) throws SQLException {
 		Statement stat=conn.createStatement();
-		boolean exists=stat.executeQuery("select exists("+sqlcondition+")").getBoolean(1);
-		if(!exists) return null;
+		ResultSet rs;
+		try {
+			stat.setFetchSize(fetchSize);
+			rs=stat.executeQuery(sqlcondition);
+		}catch(SQLException e) {
+			stat.close();
+			throw e;
+		}
+		
+		Spliterator<ObjectType> rows=new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED|Spliterator.NONNULL) {
+			public boolean tryAdvance(Consumer<? super ObjectType> action) {
+				try {
+					if(!rs.next()) return false;
+					action.accept(decoder.decode(rs.getBytes(1)));
+					return true;
+				}catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}catch(SQLException | ClassNotFoundException e) {
+					throw new UncheckedIOException(new IOException(e));
+				}
+			}
+		};
 		
-		ResultSet rs = stat.executeQuery(sqlcondition);
-	    while (rs.next()) {
-	    	byte[] st = (byte[]) rs.getObject(1);
-	    	ByteArrayInputStream baip = new ByteArrayInputStream(st);
-	    	ObjectInputStream ois = new ObjectInputStream(baip);
-	    	@SuppressWarnings("unchecked")
-			ObjectType emp = (ObjectType) ois.readObject();
-	    	ret.add(emp);
-	    }
-	    stat.close();
-	    rs.close();
-	    return ret;
+		return StreamSupport.stream(rows, false).onClose(()->{
+			try {
+				rs.close();
+				stat.close();
+			}catch(SQLException e) {
+				throw new UncheckedIOException(new IOException(e));
+			}
+		});
 	}
 }
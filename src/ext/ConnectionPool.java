@@ -0,0 +1,173 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package ext;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A small pool of connections to one SQLite database in WAL mode. In this mode readers don't block each other or
+ * the writer, so the pool keeps several connections for reading and a single one for writing, because SQLite only
+ * allows one writer at a time anyway.<p>
+ * A task borrows a connection for its whole run. The async methods run the task on the given {@link Executor}; while
+ * all connections are in use, the task blocks its thread, which is cheap with virtual threads.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+public class ConnectionPool implements AutoCloseable {
+	
+	/**
+	 * A task that uses a borrowed connection.
+	 * 
+	 * @param <R> The type of result
+	 */
+	public static interface Task <R> {
+		public R run(Connection conn) throws Exception;
+	}
+	
+	private BlockingQueue<Connection> readers;
+	
+	private List<Connection> all;
+	
+	private Connection writer;
+	
+	private ReentrantLock writeLock;
+	
+	/**
+	 * Opens all connections and switches the database into WAL mode.
+	 * 
+	 * @param url The JDBC url of the database, for example "jdbc:sqlite:patterns.db"
+	 * @param readers The amount of connections for reading
+	 * @param busyTimeout The milliseconds a connection waits for a lock before it fails
+	 * @throws SQLException
+	 */
+	public ConnectionPool(String url, int readers, int busyTimeout) throws SQLException {
+		this.readers=new ArrayBlockingQueue<>(readers);
+		this.all=new ArrayList<>();
+		this.writeLock=new ReentrantLock(true);
+		try {
+			this.writer=open(url, busyTimeout);
+			try(Statement stat=writer.createStatement()) {
+				stat.execute("pragma journal_mode=WAL");
+				stat.execute("pragma synchronous=NORMAL");
+			}
+			for(int i=0; i<readers; i++) this.readers.add(open(url, busyTimeout));
+		}catch(SQLException e) {
+			close();
+			throw e;
+		}
+	}
+	
+	public ConnectionPool(String url, int readers) throws SQLException {
+		this(url, readers, 5000);
+	}
+	
+	private Connection open(String url, int busyTimeout) throws SQLException {
+		Connection ret=DriverManager.getConnection(url);
+		all.add(ret);
+		try(Statement stat=ret.createStatement()) {
+			stat.execute("pragma busy_timeout="+busyTimeout);
+		}
+		return ret;
+	}
+	
+	
+	/**
+	 * Runs the task with a reading connection, it waits until one is free.
+	 * 
+	 * @param <R> The type of result
+	 * @param task The task, it must not change the database
+	 * @return The result of the task
+	 * @throws Exception The exception of the task
+	 */
+	public <R> R read(Task<R> task) throws Exception {
+		Connection conn=readers.take();
+		try {
+			return task.run(conn);
+		}finally {
+			readers.add(conn);
+		}
+	}
+	
+	/**
+	 * Runs the task with the writing connection, it waits until no other task writes.
+	 * 
+	 * @param <R> The type of result
+	 * @param task The task
+	 * @return The result of the task
+	 * @throws Exception The exception of the task
+	 */
+	public <R> R write(Task<R> task) throws Exception {
+		writeLock.lockInterruptibly();
+		try {
+			return task.run(writer);
+		}finally {
+			writeLock.unlock();
+		}
+	}
+	
+	
+	/**
+	 * Runs {@link #read(Task)} on the given executor.
+	 * 
+	 * @param <R> The type of result
+	 * @param task The task, it must not change the database
+	 * @param executor The {@link Executor} that runs the task
+	 * @return The result, it fails with a {@link CompletionException} that contains the exception of the task
+	 */
+	public <R> CompletableFuture<R> readAsync(Task<R> task, Executor executor) {
+		return CompletableFuture.supplyAsync(()->unchecked(()->read(task)), executor);
+	}
+	
+	/**
+	 * Runs {@link #write(Task)} on the given executor.
+	 * 
+	 * @param <R> The type of result
+	 * @param task The task
+	 * @param executor The {@link Executor} that runs the task
+	 * @return The result, it fails with a {@link CompletionException} that contains the exception of the task
+	 */
+	public <R> CompletableFuture<R> writeAsync(Task<R> task, Executor executor) {
+		return CompletableFuture.supplyAsync(()->unchecked(()->write(task)), executor);
+	}
+	
+	private static <R> R unchecked(java.util.concurrent.Callable<R> call) {
+		try {
+			return call.call();
+		}catch(RuntimeException e) {
+			throw e;
+		}catch(Exception e) {
+			throw new CompletionException(e);
+		}
+	}
+	
+	
+	/**
+	 * Closes all connections, tasks that still use one will fail.
+	 */
+	public void close() throws SQLException {
+		SQLException first=null;
+		for(Connection cur:all) {
+			try {
+				cur.close();
+			}catch(SQLException e) {
+				if(first==null) first=e;
+			}
+		}
+		if(first!=null) throw first;
+	}
+}
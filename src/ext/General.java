@@ -6,7 +6,7 @@
 package ext;
 
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -32,7 +32,8 @@ public abstract class General {
 	public static <KeyType, ValType extends Comparable<ValType>> Map<KeyType, ValType> sortMap(Map<KeyType, ValType> map) {
 		List<Map.Entry<KeyType, ValType>> capitalList=new LinkedList<>(map.entrySet());
 	    Collections.sort(capitalList, (l1, l2)->l1.getValue().compareTo(l2.getValue()));
-	    Map<KeyType, ValType> result=new HashMap<>();
+	    //keeps the sorted order
+	    Map<KeyType, ValType> result=new LinkedHashMap<>();
 	    for(Map.Entry<KeyType, ValType> entry:capitalList) {
 	    	result.put(entry.getKey(), entry.getValue());
 	    }
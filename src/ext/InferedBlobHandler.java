@@ -8,16 +8,13 @@ package ext;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class InferedBlobHandler <ObjectType extends Serializable> implements Serializable{
 	private static final long serialVersionUID=-1132246475462282839L;
@@ -42,22 +39,33 @@ public class InferedBlobHandler <ObjectType extends Serializable> implements Ser
 	}
 	
 	public List<ObjectType> get(String sqlcondition/*MUSS das Blob-Feld zur�ckgeben!*/) throws SQLException, ClassNotFoundException, IOException {
-		List<ObjectType> ret=new ArrayList<>();
-		Statement stat=conn.createStatement();
-		boolean exists=stat.executeQuery("select exists("+sqlcondition+")").getBoolean(1);
-		if(!exists) return null;
-		
-		ResultSet rs = stat.executeQuery(sqlcondition);
-	    while (rs.next()) {
-	    	byte[] st = (byte[]) rs.getObject(1);
-	    	ByteArrayInputStream baip = new ByteArrayInputStream(st);
-	    	ObjectInputStream ois = new ObjectInputStream(baip);
-	    	@SuppressWarnings("unchecked")
-			ObjectType emp = (ObjectType) ois.readObject();
-	    	ret.add(emp);
-	    }
-	    stat.close();
-	    rs.close();
-	    return ret;
+		return BlobHandler.get(sqlcondition, conn);
+	}
+	
+	/**
+	 * Reads the blobs of a query and converts them with the given decoder straight from their bytes.
+	 * 
+	 * @param sqlcondition The query, it has to return the blob as its first column
+	 * @param decoder Converts the bytes of a blob
+	 * @return All decoded objects or null if the query has no result
+	 */
+	public List<ObjectType> get(String sqlcondition, BlobHandler.Decoder<? extends ObjectType> decoder) throws SQLException, ClassNotFoundException, IOException {
+		return BlobHandler.get(sqlcondition, conn, decoder);
+	}
+	
+	public Stream<ObjectType> stream(String sqlcondition) throws SQLException {
+		return BlobHandler.stream(sqlcondition, conn);
+	}
+	
+	/**
+	 * Reads the blobs of a query lazily, see {@link BlobHandler#stream(String, Connection, int, BlobHandler.Decoder)}.
+	 * 
+	 * @param sqlcondition The query, it has to return the blob as its first column
+	 * @param fetchSize The amount of rows the driver fetches at once
+	 * @param decoder Converts the bytes of a blob
+	 * @return A stream of all decoded objects that has to be closed
+	 */
+	public Stream<ObjectType> stream(String sqlcondition, int fetchSize, BlobHandler.Decoder<? extends ObjectType> decoder) throws SQLException {
+		return BlobHandler.stream(sqlcondition, conn, fetchSize, decoder);
 	}
 }
@@ -8,11 +8,12 @@ package prNet;
 import java.nio.channels.AlreadyBoundException;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 public abstract class AspectManager {
 	
@@ -23,93 +24,204 @@ public abstract class AspectManager {
 	 */
 	public record Aspect<T>(String name, Comparison<T, T> comparison, String table, Function<T, String> keyFunction) {}
 	 
-	private static LinkedList<Aspect<?>> elements=new LinkedList<>();
+	//all aspects by their names, defining one locks the whole registry but looking one up doesn't
+	private static final ConcurrentHashMap<String, Aspect<?>> elements=new ConcurrentHashMap<>();
+	
+	//all aspects in the order they were defined, replaced with a new list whenever an aspect is defined
+	private static volatile List<Aspect<?>> snapshot=List.of();
+	
+	private static final Object lock=new Object();
+	
+	//the loaded author indexes by the names of their aspects
+	private static ConcurrentHashMap<String, AuthorIndex> authorIndexes=new ConcurrentHashMap<>();
+	
+	//the registered pattern codecs by the names of their aspects
+	private static ConcurrentHashMap<String, PatternCodec<?>> codecs=new ConcurrentHashMap<>();
+	
+	//the search limits by the names of their aspects
+	private static ConcurrentHashMap<String, SearchLimits> limits=new ConcurrentHashMap<>();
+	
+	//the pattern stores by the names of their aspects
+	private static ConcurrentHashMap<String, PatternStore> stores=new ConcurrentHashMap<>();
 	
 	
 	public static <T> Aspect<T> define(String name, Class<T> classType, Comparison<T, T> comparison, String table, Function<T, String> keyFunction, Statement stat) throws SQLException {
-		//check for an aspect with an equals name
-		for(Aspect<?> cur:elements) {
-			if(cur.name().equals(name)) {
-				throw new AlreadyBoundException();
-			}
-		}
-		
-		stat.executeUpdate(
-				  "create table if not exists \""+table+"\" ("
-				+ "	\"key\"	TEXT,"
-				+ "	\"author\" TEXT,"
-				+ "	\"count\" INTEGER,"
-				+ "	\"blob\" BLOB"
-				+ ");");
-		
-		Aspect<T> ret=new Aspect<T>(name, comparison, table, keyFunction);
-		elements.add(ret);
-		return ret;
+		return define(name, comparison, table, keyFunction, stat);
 	}
 	
 	
 	public static <T> Aspect<T> define(String name, Comparison<T, T> comparison, String table, Function<T, String> keyFunction, Statement stat) throws SQLException {
-		//check for an aspect with an equals name
-		for(Aspect<?> cur:elements) {
-			if(cur.name().equals(name)) {
-				throw new AlreadyBoundException();
-			}
+		synchronized(lock) {
+			//check for an aspect with an equals name
+			if(elements.containsKey(name)) throw new AlreadyBoundException();
+			return add(new Aspect<T>(name, comparison, table, keyFunction), stat);
 		}
+	}
+	
+	/**
+	 * Defines an aspect if no aspect with the given name exists, otherwise the existing one is returned and
+	 * nothing else is done. Several threads can call this at the same time, all of them get the same aspect.
+	 * 
+	 * @param <T> The type of elements
+	 * @param name The name of the aspect
+	 * @param comparison The {@link Comparison} used to compare two elements
+	 * @param table The name of the table of the aspect
+	 * @param keyFunction Converts an element into a string that is used in the keys of patterns
+	 * @param stat A {@link Statement} of the database
+	 * @return The aspect with the given name
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Aspect<T> defineIfAbsent(String name, Comparison<T, T> comparison, String table, Function<T, String> keyFunction, Statement stat) throws SQLException {
+		Aspect<?> cur=elements.get(name);
+		if(cur!=null) return (Aspect<T>) cur;
+		synchronized(lock) {
+			cur=elements.get(name);
+			if(cur!=null) return (Aspect<T>) cur;
+			return add(new Aspect<T>(name, comparison, table, keyFunction), stat);
+		}
+	}
+	
+	private static <T> Aspect<T> add(Aspect<T> aspect, Statement stat) throws SQLException {
+		SQLoperations.createTable(aspect.table(), stat);
 		
-		stat.executeUpdate(
-				  "create table if not exists \""+table+"\" ("
-				+ "	\"key\"	TEXT,"
-				+ "	\"author\" TEXT,"
-				+ "	\"count\" INTEGER,"
-				+ "	\"blob\" BLOB"
-				+ ");");
-		
-		Aspect<T> ret=new Aspect<T>(name, comparison, table, keyFunction);
-		elements.add(ret);
-		return ret;
+		List<Aspect<?>> next=new ArrayList<>(snapshot);
+		next.add(aspect);
+		elements.put(aspect.name(), aspect);
+		snapshot=Collections.unmodifiableList(next);
+		return aspect;
 	}
 	
 	
 	@SuppressWarnings("unchecked")
 	public static <T> Aspect<T> getAspect(String name) {
-		for(Aspect<?> cur:elements) {
-			if(cur.name().equals(name)) return (Aspect<T>) cur;
-		}
-		throw new NoSuchElementException();
+		Aspect<?> ret=elements.get(name);
+		if(ret==null) throw new NoSuchElementException();
+		return (Aspect<T>) ret;
 	}
 	
-	@SuppressWarnings("unchecked")
 	public static <T> Aspect<T> getAspect(Class<T> classType, String name) {
-		for(Aspect<?> cur:elements) {
-			if(cur.name().equals(name)) return (Aspect<T>) cur;
-		}
-		throw new NoSuchElementException();
+		return getAspect(name);
 	}
 	
 	
 	@SuppressWarnings("unchecked")
 	public static <T> Aspect<T> getAspect(int position) {
-		return (Aspect<T>) elements.get(position);
+		return (Aspect<T>) snapshot.get(position);
 	}
 	
-	@SuppressWarnings("unchecked")
 	public static <T> Aspect<T> getAspect(Class<T> classType, int position) {
-		return (Aspect<T>) elements.get(position);
+		return getAspect(position);
 	}
 	
 	
+	/**
+	 * Loads the table of the given aspect into an {@link AuthorIndex}. Afterwards matching authors are found with
+	 * the index instead of the database and saved patterns are written to both.
+	 * 
+	 * @param aspect The aspect
+	 * @param stat A {@link Statement} of the database
+	 * @return The loaded index
+	 * @throws SQLException
+	 */
+	public static AuthorIndex loadAuthorIndex(Aspect<?> aspect, Statement stat) throws SQLException {
+		AuthorIndex ret=AuthorIndex.load(aspect.table(), stat);
+		authorIndexes.put(aspect.name(), ret);
+		return ret;
+	}
+	
+	/**
+	 * @param aspect The aspect
+	 * @return The loaded {@link AuthorIndex} of the aspect or null
+	 */
+	public static AuthorIndex getAuthorIndex(Aspect<?> aspect) {
+		return authorIndexes.get(aspect.name());
+	}
+	
+	/**
+	 * Removes the {@link AuthorIndex} of the given aspect, so the database is used again.
+	 * 
+	 * @param aspect The aspect
+	 */
+	public static void removeAuthorIndex(Aspect<?> aspect) {
+		authorIndexes.remove(aspect.name());
+	}
+	
+	
+	/**
+	 * Registers the codec that converts the patterns of the given aspect into blobs. Blobs that were written
+	 * before are still read if the codec supports them, like {@link PatternCodec#binary(ElementCodec)} does.
+	 * 
+	 * @param <T> The type of elements in the patterns
+	 * @param aspect The aspect
+	 * @param codec The codec
+	 */
+	public static <T> void registerCodec(Aspect<T> aspect, PatternCodec<T> codec) {
+		codecs.put(aspect.name(), codec);
+	}
+	
+	/**
+	 * @param <T> The type of elements in the patterns
+	 * @param aspect The aspect
+	 * @return The registered codec of the aspect or {@link PatternCodec#serializing()}
+	 */
 	@SuppressWarnings("unchecked")
-	public static <T> List<Aspect<T>> getAllAspects() {
-		return elements.stream()
-				.map(c->(Aspect<T>) c)
-				.collect(Collectors.toList());
+	public static <T> PatternCodec<T> getCodec(Aspect<T> aspect) {
+		PatternCodec<T> ret=(PatternCodec<T>) codecs.get(aspect.name());
+		return ret==null? PatternCodec.serializing(): ret;
 	}
 	
+	
+	/**
+	 * Sets the limits of all later searches under the given aspect, so only patterns within them are found and saved.
+	 * 
+	 * @param aspect The aspect
+	 * @param searchLimits The limits or {@link SearchLimits#NONE}
+	 */
+	public static void setLimits(Aspect<?> aspect, SearchLimits searchLimits) {
+		limits.put(aspect.name(), searchLimits);
+	}
+	
+	/**
+	 * @param aspect The aspect
+	 * @return The limits of the aspect or {@link SearchLimits#NONE}
+	 */
+	public static SearchLimits getLimits(Aspect<?> aspect) {
+		return limits.getOrDefault(aspect.name(), SearchLimits.NONE);
+	}
+	
+	
+	/**
+	 * Sets the store of the patterns of the given aspect, afterwards they are saved, scored and read with the store
+	 * instead of the table of the aspect. Patterns that were saved in the table before aren't moved.
+	 * 
+	 * @param aspect The aspect
+	 * @param store The store, for example a {@link MappedPatternStore}, or null to use the table again
+	 */
+	public static void setStore(Aspect<?> aspect, PatternStore store) {
+		if(store==null) stores.remove(aspect.name());
+		else stores.put(aspect.name(), store);
+	}
+	
+	/**
+	 * @param aspect The aspect
+	 * @return The store of the aspect or null if its patterns are in its table
+	 */
+	public static PatternStore getStore(Aspect<?> aspect) {
+		return stores.get(aspect.name());
+	}
+	
+	
+	/**
+	 * @return All aspects in the order they were defined, the list can't be changed
+	 */
 	@SuppressWarnings("unchecked")
+	public static <T> List<Aspect<T>> getAllAspects() {
+		return (List<Aspect<T>>) (List<?>) snapshot;
+	}
+	
 	public static <T> List<Aspect<T>> getAllAspects(Class<T> classType) {
-		return elements.stream()
-				.map(c->(Aspect<T>) c)
-				.collect(Collectors.toList());
+		return getAllAspects();
 	}
 
 }
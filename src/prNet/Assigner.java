@@ -7,9 +7,14 @@ package prNet;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Assigner<Key, Value> {
 	
+	//counts the changes of keys that can change their hash code, every index built before the last change is rebuilt
+	private static final AtomicLong keyChanges=new AtomicLong();
+	
 	static class Reference<Key, Value> {
 		private Key key;
 		private ArrayList<Value> val;
@@ -38,33 +43,53 @@ public class Assigner<Key, Value> {
 		}
 	}
 	
+	//created with the first assignment, most assigners never get one
 	private ArrayList<Reference<Key, Value>> memory;
 	
+	//the first reference of every key, built with the first lookup so assigners that are never read don't need it
+	private HashMap<Key, Reference<Key, Value>> index;
+	
+	//the value of keyChanges when the index was built
+	private long indexed;
+	
 	public Assigner() {
-		this.memory=new ArrayList<>();
 	}
 	
 	
 	public void assign(Key key, Value val) {
-		this.memory.add(new Reference<>(key, val));
+		assign(new Reference<>(key, val));
 	}
 	
 	void assign(Reference<Key, Value> ref) {
+		if(this.memory==null) this.memory=new ArrayList<>(2);
 		this.memory.add(ref);
+		if(this.index!=null) this.index.putIfAbsent(ref.key, ref);
 	}
 	
 	
 	public Value read(Key key) {
-		for(Reference<Key, Value> c:this.memory) {
-			if(c.key.equals(key)) return c.getValue();
-		}
-		return null;
+		Reference<Key, Value> c=get(key);
+		return c==null? null: c.getValue();
 	}
 	
 	Reference<Key, Value> get(Key key) {
-		for(Reference<Key, Value> c:this.memory) {
-			if(c.key.equals(key)) return c;
+		if(this.memory==null) return null;
+		long changes=keyChanges.get();
+		if(this.index==null || this.indexed!=changes) {
+			this.index=new HashMap<>();
+			for(Reference<Key, Value> c:this.memory) this.index.putIfAbsent(c.key, c);
+			this.indexed=changes;
 		}
-		return null;
+		return this.index.get(key);
+	}
+	
+	
+	/**
+	 * Has to be called whenever an object that can be used as a key changes its hash code or what it equals, like
+	 * {@link BasePattern#setElements(java.util.List)} does. Since a key doesn't know in which assigners it is used,
+	 * every index is rebuilt with its next lookup.
+	 */
+	static void keyChanged() {
+		keyChanges.incrementAndGet();
 	}
 }
@@ -0,0 +1,271 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * An in-memory copy of the table of an {@link AspectManager.Aspect} that stores the count of every pattern key and
+ * author and the total count of every author. It's used by
+ * {@link PatternUsage#findMatchingAuthors(List, AspectManager.Aspect, java.sql.Connection, boolean, int, int, int)}
+ * instead of the database once it was loaded with {@link AspectManager#loadAuthorIndex(AspectManager.Aspect, Statement)}.<p>
+ * Authors are stored as numbers and the counts of a key as one int array of author and count pairs, so an entry
+ * takes 8 bytes and no boxed values. {@link PatternUsage#findAndSavePatterns(List, String, Statement, AspectManager.Aspect)}
+ * updates the index after every commit, other changes to the table aren't noticed.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+public class AuthorIndex {
+	
+	//the first slot counts the used slots, followed by pairs of author and count
+	private Map<String, int[]> postings;
+	
+	private Map<String, Integer> authorIds;
+	
+	private List<String> authors;
+	
+	private long[] totals;
+	
+	/**
+	 * Creates an empty index.
+	 */
+	public AuthorIndex() {
+		this.postings=new HashMap<>();
+		this.authorIds=new HashMap<>();
+		this.authors=new ArrayList<>();
+		this.totals=new long[8];
+	}
+	
+	
+	/**
+	 * Creates an index of all rows in the given table.
+	 * 
+	 * @param table The table of an {@link AspectManager.Aspect}
+	 * @param stat A {@link Statement} of the database
+	 * @return The index
+	 * @throws SQLException
+	 */
+	public static AuthorIndex load(String table, Statement stat) throws SQLException {
+		AuthorIndex ret=new AuthorIndex();
+		ResultSet rs=stat.executeQuery("select key, author, count from \""+table+"\" order by key, author");
+		while(rs.next()) {
+			String key=rs.getString(1);
+			int id=ret.idOf(rs.getString(2)), count=rs.getInt(3);
+			ret.totals[id]+=count;
+			
+			//the rows are sorted by key and author, so only the last pair of the key can have the same author
+			int[] cur=ret.postings.get(key);
+			if(cur!=null && cur[cur[0]-2]==id) {
+				cur[cur[0]-1]+=count;
+			}else {
+				ret.append(key, cur, id, count);
+			}
+		}
+		rs.close();
+		return ret;
+	}
+	
+	
+	/**
+	 * Adds the given count to the count of a key and author, like saving a pattern as unique does.
+	 * 
+	 * @param key The key of the pattern
+	 * @param author The author of the pattern
+	 * @param count The count that is added
+	 */
+	public synchronized void add(String key, String author, int count) {
+		int id=idOf(author);
+		totals[id]+=count;
+		
+		int[] cur=postings.get(key);
+		for(int i=1; cur!=null && i<cur[0]; i+=2) {
+			if(cur[i]==id) {
+				cur[i+1]+=count;
+				return;
+			}
+		}
+		append(key, cur, id, count);
+	}
+	
+	//adds a new pair of author and count to the postings of a key, which are null if the key is new
+	private void append(String key, int[] cur, int id, int count) {
+		if(cur==null) {
+			cur=new int[5];
+			cur[0]=1;
+			postings.put(key, cur);
+		}
+		if(cur[0]+2>cur.length) {
+			cur=Arrays.copyOf(cur, cur.length*2-1);
+			postings.put(key, cur);
+		}
+		cur[cur[0]]=id;
+		cur[cur[0]+1]=count;
+		cur[0]+=2;
+	}
+	
+	
+	/**
+	 * @param key The key of a pattern
+	 * @param author An author
+	 * @return The count of the pattern by the author or 0
+	 */
+	public synchronized int getCount(String key, String author) {
+		int[] cur=postings.get(key);
+		Integer id=authorIds.get(author);
+		if(cur==null || id==null) return 0;
+		for(int i=1; i<cur[0]; i+=2) {
+			if(cur[i]==id) return cur[i+1];
+		}
+		return 0;
+	}
+	
+	/**
+	 * @param author An author
+	 * @return The sum of the counts of all patterns by the author
+	 */
+	public synchronized long getTotal(String author) {
+		Integer id=authorIds.get(author);
+		return id==null? 0: totals[id];
+	}
+	
+	/**
+	 * @return The amount of different keys
+	 */
+	public synchronized int countKeys() {
+		return postings.size();
+	}
+	
+	/**
+	 * @return The amount of different authors
+	 */
+	public synchronized int countAuthors() {
+		return authors.size();
+	}
+	
+	
+	/**
+	 * Scores all authors like {@link SQLoperations#scoreAuthors(List, String, boolean, boolean, boolean, int, int, java.sql.Connection)}.
+	 * 
+	 * @param textKeys The keys of the patterns, a key that is given more than once counts more than once
+	 * @param ignoreLow If patterns with a count of 0 are ignored instead of being counted once
+	 * @param highest If only the authors with the highest count of each key are scored
+	 * @param percent If the scores are converted into percentages of the total count of each author
+	 * @param min The minimum count of a pattern or -1
+	 * @param max The maximum count of a pattern or -1, only used together with min
+	 * @return The score of every matching author
+	 */
+	synchronized HashMap<String, Double> scoreAuthors(List<String> textKeys, boolean ignoreLow, boolean highest, boolean percent, int min, int max) {
+		HashMap<String, Double> ret=new HashMap<>();
+		score(textKeys, ignoreLow, highest, percent, min, max, ret::put);
+		return ret;
+	}
+	
+	/**
+	 * Scores all authors like {@link #scoreAuthors(List, boolean, boolean, boolean, int, int)} but only returns the
+	 * k best of them.
+	 * 
+	 * @param textKeys The keys of the patterns, a key that is given more than once counts more than once
+	 * @param ignoreLow If patterns with a count of 0 are ignored instead of being counted once
+	 * @param highest If only the authors with the highest count of each key are scored
+	 * @param percent If the scores are converted into percentages of the total count of each author
+	 * @param min The minimum count of a pattern or -1
+	 * @param max The maximum count of a pattern or -1, only used together with min
+	 * @param k The amount of authors
+	 * @return The k best authors, the best first
+	 */
+	synchronized List<AuthorScore> topAuthors(List<String> textKeys, boolean ignoreLow, boolean highest, boolean percent, int min, int max, int k) {
+		AuthorRanking ret=new AuthorRanking(k);
+		score(textKeys, ignoreLow, highest, percent, min, max, ret::offer);
+		return ret.toList();
+	}
+	
+	private void score(List<String> textKeys, boolean ignoreLow, boolean highest, boolean percent, int min, int max, ObjDoubleConsumer<String> result) {
+		score(textKeys, postings::get, authors, totals, ignoreLow, highest, percent, min, max, result);
+	}
+	
+	/**
+	 * Scores all authors like {@link #scoreAuthors(List, boolean, boolean, boolean, int, int)} with postings of another
+	 * source, like the ones of a {@link MappedPatternStore}.
+	 * 
+	 * @param textKeys The keys of the patterns, a key that is given more than once counts more than once
+	 * @param postingsOf Returns the counts of a key like this index stores them, the amount of used slots followed by
+	 * 	pairs of author and count, or null
+	 * @param authors The authors by their numbers
+	 * @param totals The total count of every author by its number
+	 * @param ignoreLow If patterns with a count of 0 are ignored instead of being counted once
+	 * @param highest If only the authors with the highest count of each key are scored
+	 * @param percent If the scores are converted into percentages of the total count of each author
+	 * @param min The minimum count of a pattern or -1
+	 * @param max The maximum count of a pattern or -1, only used together with min
+	 * @param result Receives every matching author and its score
+	 */
+	static void score(List<String> textKeys, Function<String, int[]> postingsOf, List<String> authors, long[] totals, boolean ignoreLow, boolean highest, boolean percent, int min, int max, ObjDoubleConsumer<String> result) {
+		Map<String, Integer> multiplicity=new HashMap<>();
+		for(String key:textKeys) multiplicity.merge(key, 1, Integer::sum);
+		
+		double[] scores=new double[authors.size()];
+		boolean[] found=new boolean[authors.size()];
+		for(Map.Entry<String, Integer> entry:multiplicity.entrySet()) {
+			int[] cur=postingsOf.apply(entry.getKey());
+			if(cur==null) continue;
+			
+			int best=Integer.MIN_VALUE;
+			if(highest) {
+				for(int i=1; i<cur[0]; i+=2) {
+					if(accepts(cur[i+1], ignoreLow, min, max)) best=Math.max(best, valueOf(cur[i+1]));
+				}
+			}
+			for(int i=1; i<cur[0]; i+=2) {
+				if(!accepts(cur[i+1], ignoreLow, min, max)) continue;
+				int value=valueOf(cur[i+1]);
+				if(highest && value!=best) continue;
+				scores[cur[i]]+=(double) value*entry.getValue();
+				found[cur[i]]=true;
+			}
+		}
+		
+		for(int i=0; i<scores.length; i++) {
+			if(!found[i]) continue;
+			result.accept(authors.get(i), percent? scores[i]/totals[i]*100d: scores[i]);
+		}
+	}
+	
+	private static boolean accepts(int count, boolean ignoreLow, int min, int max) {
+		if(max>-1 && min>-1) {
+			if(count<min || count>max) return false;
+		}else if(min>-1) {
+			if(count<min) return false;
+		}
+		return !ignoreLow || count!=0;
+	}
+	
+	//a count of 0 is counted as 1
+	private static int valueOf(int count) {
+		return count==0? 1: count;
+	}
+	
+	
+	private int idOf(String author) {
+		Integer ret=authorIds.get(author);
+		if(ret!=null) return ret;
+		
+		ret=authors.size();
+		authorIds.put(author, ret);
+		authors.add(author);
+		if(ret==totals.length) totals=Arrays.copyOf(totals, totals.length*2);
+		return ret;
+	}
+}
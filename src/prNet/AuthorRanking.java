@@ -0,0 +1,115 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the k best of all offered authors in a bounded heap. The heap stores the scores as doubles, so an author
+ * that doesn't make it into the best k doesn't cost an object.<p>
+ * A higher score ranks better, equal scores are ordered by the name of the author.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+final class AuthorRanking {
+	
+	private final int k;
+	
+	//a heap with the worst kept author at 0
+	private double[] scores;
+	
+	private String[] authors;
+	
+	private int size;
+	
+	/**
+	 * @param k The amount of authors that are kept
+	 */
+	AuthorRanking(int k) {
+		if(k<1) throw new IllegalArgumentException("k has to be at least 1");
+		this.k=k;
+		this.scores=new double[Math.min(k, 16)];
+		this.authors=new String[scores.length];
+	}
+	
+	
+	/**
+	 * Offers an author, it's only kept if it ranks better than the worst of k kept ones.
+	 * 
+	 * @param author The author
+	 * @param score The score of the author
+	 */
+	void offer(String author, double score) {
+		if(size<k) {
+			if(size==scores.length) {
+				scores=Arrays.copyOf(scores, (int) Math.min(k, scores.length*2L));
+				authors=Arrays.copyOf(authors, scores.length);
+			}
+			scores[size]=score;
+			authors[size]=author;
+			siftUp(size++);
+		}else if(compare(score, author, scores[0], authors[0])>0) {
+			scores[0]=score;
+			authors[0]=author;
+			siftDown(0);
+		}
+	}
+	
+	/**
+	 * @return The kept authors, the best first
+	 */
+	List<AuthorScore> toList() {
+		AuthorScore[] ret=new AuthorScore[size];
+		while(size>0) {
+			ret[size-1]=new AuthorScore(authors[0], scores[0]);
+			size--;
+			scores[0]=scores[size];
+			authors[0]=authors[size];
+			authors[size]=null;
+			siftDown(0);
+		}
+		return new ArrayList<>(Arrays.asList(ret));
+	}
+	
+	
+	//positive if the first author ranks better
+	private static int compare(double score1, String author1, double score2, String author2) {
+		int ret=Double.compare(score1, score2);
+		return ret!=0? ret: author2.compareTo(author1);
+	}
+	
+	private void siftUp(int i) {
+		while(i>0) {
+			int parent=(i-1)/2;
+			if(compare(scores[parent], authors[parent], scores[i], authors[i])<=0) return;
+			swap(i, parent);
+			i=parent;
+		}
+	}
+	
+	private void siftDown(int i) {
+		while(true) {
+			int worst=i, left=2*i+1, right=left+1;
+			if(left<size && compare(scores[left], authors[left], scores[worst], authors[worst])<0) worst=left;
+			if(right<size && compare(scores[right], authors[right], scores[worst], authors[worst])<0) worst=right;
+			if(worst==i) return;
+			swap(i, worst);
+			i=worst;
+		}
+	}
+	
+	private void swap(int i, int j) {
+		double score=scores[i];
+		scores[i]=scores[j];
+		scores[j]=score;
+		String author=authors[i];
+		authors[i]=authors[j];
+		authors[j]=author;
+	}
+}
@@ -0,0 +1,14 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+/**
+ * The score of one author, returned by {@link PatternUsage#findTopAuthors(java.util.List, AspectManager.Aspect, java.sql.Connection, boolean, int, int, int, int)}.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+public record AuthorScore(String author, double score) {}
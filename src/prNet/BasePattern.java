@@ -6,6 +6,7 @@
 package prNet;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -26,6 +27,9 @@ public class BasePattern<T> extends Assigner<BasePattern<T>, List<T>> implements
 	
 	private Comparison<T, T> gComparison;
 	
+	//compiled on the first match, reset whenever the elements are changed through this class
+	private transient PatternMatcher<T> gMatcher;
+	
 	/**
 	 * Creates a BasePattern with a list of elements and a {@link Comparison} to compare two elements with each other.
 	 * 
@@ -54,6 +58,8 @@ public class BasePattern<T> extends Assigner<BasePattern<T>, List<T>> implements
 	
 	public void setElements(List<T> elements) {
 		gelements=elements;
+		gMatcher=null;
+		keyChanged();
 	}
 	
 	
@@ -109,10 +115,21 @@ public class BasePattern<T> extends Assigner<BasePattern<T>, List<T>> implements
 		return false;
 	}
 	
+	/**
+	 * Equal patterns have an equal hash code. If the {@link Comparison} has an equivalence key the hash code
+	 * is based on the keys of all elements, otherwise only on the size.
+	 */
+	public int hashCode() {
+		if(gComparison!=null && gComparison.hasEquivalenceKey())
+			return KeyIndex.keysOf(gelements, gComparison).hashCode();
+		return gelements.size();
+	}
+	
 	
 	public void addNullAsFirst() {
 		//adds null as the first element
 		if(gelements.get(0)!=null) {
+			if(gelements instanceof PatternInterner.Body) gelements=new ArrayList<>(gelements);
 			int bs=gelements.size();
 			gelements.add(null);
 			
@@ -121,13 +138,33 @@ public class BasePattern<T> extends Assigner<BasePattern<T>, List<T>> implements
 			}
 			
 			gelements.set(0, null);
+			gMatcher=null;
+			keyChanged();
 		}
 	}
 	
 	public void addNullAsLast() {
 		//adds null as the last element
-		if(gelements.get(gelements.size()-1)!=null)
+		if(gelements.get(gelements.size()-1)!=null) {
+			if(gelements instanceof PatternInterner.Body) gelements=new ArrayList<>(gelements);
 			gelements.add(null);
+			gMatcher=null;
+			keyChanged();
+		}
+	}
+	
+	
+	/**
+	 * Returns this pattern compiled into a {@link PatternMatcher}. It is compiled with the first call and reused
+	 * afterwards, so {@link #setElements(List)} has to be called if the list of elements was changed directly.
+	 * This also rebuilds the indexes of the assigners that use this pattern as a key.
+	 * 
+	 * @return The compiled pattern
+	 */
+	public PatternMatcher<T> matcher() {
+		PatternMatcher<T> ret=gMatcher;
+		if(ret==null) gMatcher=ret=new PatternMatcher<>(gelements, gComparison);
+		return ret;
 	}
 	
 	
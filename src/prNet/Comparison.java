@@ -48,4 +48,59 @@ public interface Comparison<T1, T2> extends Serializable {
         Objects.requireNonNull(other);
         return (T1 t, T2 u)->compare(t, u) && other.compare(t, u);
     }
+
+	/**
+	 * Tells if this comparison has an equivalence key, see {@link #equivalenceKey(Object)}.
+	 * 
+	 * @return If {@link #equivalenceKey(Object)} can be used
+	 */
+	default boolean hasEquivalenceKey() {
+		return false;
+	}
+	
+	/**
+	 * Returns a key that agrees with {@link #compare(Object, Object)}: two elements are equal under this comparison
+	 * if and only if their keys are equal. This makes it possible to find elements through hash-based structures
+	 * instead of comparing them one by one. It is only meaningful if both element-types are the same.
+	 * 
+	 * @param t The element
+	 * @return The key of the element
+	 * @throws UnsupportedOperationException If this comparison has no equivalence key
+	 */
+	default Object equivalenceKey(T1 t) {
+		throw new UnsupportedOperationException("This comparison has no equivalence key");
+	}
+	
+	/**
+	 * Adds an equivalence key to the given comparison.
+	 * 
+	 * @param <T> The type of elements
+	 * @param comparison The comparison that is used to compare 2 elements
+	 * @param key The key of an element, it has to agree with the comparison
+	 * @return A comparison that compares like the given one and supports {@link #equivalenceKey(Object)}
+	 */
+	public static <T> Comparison<T, T> keyed(Comparison<T, T> comparison, Key<T> key) {
+		return new KeyedComparison<>(comparison, key);
+	}
+	
+	/**
+	 * Creates a comparison that treats two elements as equal if their keys are equal.
+	 * 
+	 * @param <T> The type of elements
+	 * @param key The key of an element
+	 * @return A comparison that compares the keys of two elements and supports {@link #equivalenceKey(Object)}
+	 */
+	public static <T> Comparison<T, T> byKey(Key<T> key) {
+		Objects.requireNonNull(key);
+		return keyed((t1, t2)->Objects.equals(key.apply(t1), key.apply(t2)), key);
+	}
+	
+	/**
+	 * A serializable function that converts an element into its equivalence key.
+	 * 
+	 * @param <T> The type of elements
+	 */
+	public static interface Key<T> extends Serializable {
+		public Object apply(T t);
+	}
 }
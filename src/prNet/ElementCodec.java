@@ -0,0 +1,146 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes single elements of a pattern into the binary format of {@link PatternCodec#binary(ElementCodec)}.
+ * An element codec is registered for an {@link AspectManager.Aspect} together with its pattern codec.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ * @param <T> The type of elements
+ */
+public interface ElementCodec<T> {
+	
+	/**
+	 * Writes an element, it is never null.
+	 * 
+	 * @param element The element
+	 * @param out The output
+	 * @throws IOException
+	 */
+	public void write(T element, DataOutput out) throws IOException;
+	
+	/**
+	 * Reads an element that was written with {@link #write(Object, DataOutput)}.
+	 * 
+	 * @param in The input
+	 * @return The element
+	 * @throws IOException
+	 */
+	public T read(DataInput in) throws IOException;
+	
+	
+	/**
+	 * Integers as zigzag varints, so small numbers take one byte.
+	 */
+	public static final ElementCodec<Integer> INTEGER=new ElementCodec<>() {
+		public void write(Integer element, DataOutput out) throws IOException {
+			writeVarInt(out, (element<<1)^(element>>31));
+		}
+		
+		public Integer read(DataInput in) throws IOException {
+			int raw=readVarInt(in);
+			return (raw>>>1)^-(raw&1);
+		}
+	};
+	
+	public static final ElementCodec<Long> LONG=new ElementCodec<>() {
+		public void write(Long element, DataOutput out) throws IOException {
+			long cur=(element<<1)^(element>>63);
+			while((cur&~0x7FL)!=0) {
+				out.writeByte((int) (cur&0x7F)|0x80);
+				cur>>>=7;
+			}
+			out.writeByte((int) cur);
+		}
+		
+		public Long read(DataInput in) throws IOException {
+			long raw=0;
+			for(int shift=0; shift<64; shift+=7) {
+				int b=in.readUnsignedByte();
+				raw|=(long) (b&0x7F)<<shift;
+				if((b&0x80)==0) return (raw>>>1)^-(raw&1);
+			}
+			throw new IOException("Malformed varint");
+		}
+	};
+	
+	public static final ElementCodec<Double> DOUBLE=new ElementCodec<>() {
+		public void write(Double element, DataOutput out) throws IOException {
+			out.writeDouble(element);
+		}
+		
+		public Double read(DataInput in) throws IOException {
+			return in.readDouble();
+		}
+	};
+	
+	public static final ElementCodec<Character> CHARACTER=new ElementCodec<>() {
+		public void write(Character element, DataOutput out) throws IOException {
+			writeVarInt(out, element);
+		}
+		
+		public Character read(DataInput in) throws IOException {
+			return (char) readVarInt(in);
+		}
+	};
+	
+	/**
+	 * Strings as UTF-8 with their length in front.
+	 */
+	public static final ElementCodec<String> STRING=new ElementCodec<>() {
+		public void write(String element, DataOutput out) throws IOException {
+			byte[] bytes=element.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(out, bytes.length);
+			out.write(bytes);
+		}
+		
+		public String read(DataInput in) throws IOException {
+			byte[] bytes=new byte[readVarInt(in)];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+	
+	
+	/**
+	 * Writes an int as unsigned varint, 7 bits per byte.
+	 * 
+	 * @param out The output
+	 * @param value The value
+	 * @throws IOException
+	 */
+	public static void writeVarInt(DataOutput out, int value) throws IOException {
+		while((value&~0x7F)!=0) {
+			out.writeByte((value&0x7F)|0x80);
+			value>>>=7;
+		}
+		out.writeByte(value);
+	}
+	
+	/**
+	 * Reads an int that was written with {@link #writeVarInt(DataOutput, int)}.
+	 * 
+	 * @param in The input
+	 * @return The value
+	 * @throws IOException If the varint is longer than 5 bytes
+	 */
+	public static int readVarInt(DataInput in) throws IOException {
+		int ret=0;
+		for(int shift=0; shift<32; shift+=7) {
+			int b=in.readUnsignedByte();
+			ret|=(b&0x7F)<<shift;
+			if((b&0x80)==0) return ret;
+		}
+		throw new IOException("Malformed varint");
+	}
+}
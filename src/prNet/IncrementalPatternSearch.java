@@ -0,0 +1,141 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A pattern search that keeps all inputs it was given, so a new input only has to be compared with the earlier ones.<p>
+ * {@link PatternSearch#findPatterns(Comparison, List)} finds the patterns of every input with all other inputs and
+ * counts in how many inputs a pattern was found. This class remembers which patterns every input already contributed,
+ * so adding an input only compares the new pairs and counts up the patterns that an input found for the first time.
+ * The found patterns and their counts are always the same as a search over all inputs at once, only their order
+ * can differ because patterns that are found through a later input are appended. For the same reason another one of
+ * several patterns that are equal under the comparison can represent them.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ * @param <T> The type of elements
+ */
+public class IncrementalPatternSearch<T> {
+	
+	private Comparison<T, T> comparison;
+	
+	private PatternAccumulator<T> accumulator;
+	
+	private List<List<T>> inputs;
+	
+	private List<KeyIndex<T>> indexes;
+	
+	//the keys of all element lists every input contributed, only used if the comparison has a key
+	private List<Set<List<Object>>> seen;
+	
+	//the element lists every input contributed, only used if the comparison has no key
+	private List<List<List<T>>> contributed;
+	
+	/**
+	 * Creates an empty search.
+	 * 
+	 * @param comparison The {@link Comparison} used to compare 2 elements
+	 */
+	public IncrementalPatternSearch(Comparison<T, T> comparison) {
+		this(comparison, PatternAccumulator.of(comparison));
+	}
+	
+	/**
+	 * Creates an empty search that collects the patterns in the given accumulator.
+	 * 
+	 * @param comparison The {@link Comparison} used to compare 2 elements
+	 * @param accumulator The {@link PatternAccumulator} that counts the found patterns
+	 */
+	public IncrementalPatternSearch(Comparison<T, T> comparison, PatternAccumulator<T> accumulator) {
+		this.comparison=comparison;
+		this.accumulator=accumulator;
+		this.inputs=new ArrayList<>();
+		this.indexes=new ArrayList<>();
+		this.seen=new ArrayList<>();
+		this.contributed=new ArrayList<>();
+	}
+	
+	
+	/**
+	 * Adds an input and compares it with all earlier inputs.
+	 * 
+	 * @param input The new input
+	 * @return All patterns that were found for the first time
+	 */
+	public List<Pattern<T>> add(List<T> input) {
+		List<T> list=new ArrayList<>(input);
+		KeyIndex<T> index=new KeyIndex<>(list, comparison);
+		int n=inputs.size();
+		inputs.add(list);
+		indexes.add(index);
+		seen.add(comparison.hasEquivalenceKey()? new HashSet<>(): null);
+		contributed.add(comparison.hasEquivalenceKey()? null: new LinkedList<>());
+		
+		List<Pattern<T>> ret=new ArrayList<>();
+		//the earlier inputs only have to be compared with the new one
+		for(int i=0; i<n; i++) {
+			for(List<T> cur:PatternSearch.findPatternsInPair(indexes.get(i), list, comparison)) count(i, cur, ret);
+		}
+		//the new input is compared with all earlier ones in the same order as in a search over all inputs
+		for(int j=0; j<n; j++) {
+			for(List<T> cur:PatternSearch.findPatternsInPair(index, inputs.get(j), comparison)) count(n, cur, ret);
+		}
+		
+		Metrics metrics=Metrics.get();
+		if(metrics.isEnabled()) metrics.count(Metrics.Counter.PAIRS_COMPARED, 2L*n);
+		return ret;
+	}
+	
+	/**
+	 * Adds all given inputs one after another.
+	 * 
+	 * @param input The new inputs
+	 */
+	public void addAll(List<List<T>> input) {
+		for(List<T> cur:input) add(cur);
+	}
+	
+	
+	/**
+	 * @return The amount of inputs
+	 */
+	public int size() {
+		return inputs.size();
+	}
+	
+	/**
+	 * The returned patterns are the ones of this search, so their counts change whenever an input is added.
+	 * 
+	 * @return All found patterns
+	 */
+	public List<Pattern<T>> getPatterns() {
+		return accumulator.toList();
+	}
+	
+	
+	/**
+	 * Counts the element list for the given input if the input didn't contribute an equal one yet.
+	 */
+	private void count(int input, List<T> elements, List<Pattern<T>> added) {
+		Set<List<Object>> cSeen=seen.get(input);
+		if(cSeen!=null) {
+			if(!cSeen.add(KeyIndex.keysOf(elements, comparison))) return;
+		}else {
+			List<List<T>> cur=contributed.get(input);
+			if(PatternSearch.contains(cur, elements, comparison)) return;
+			cur.add(elements);
+		}
+		
+		Pattern<T> toAdd=new Pattern<>(elements, comparison);
+		if(accumulator.add(toAdd)==toAdd) added.add(toAdd);
+	}
+}
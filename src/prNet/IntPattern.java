@@ -0,0 +1,236 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * A pattern of ints, the primitive counterpart of a {@link Pattern} whose elements are compared by equality.
+ * A wildcard is stored as {@link #WILDCARD}, so this value can't be an element.<p>
+ * {@link #matches(int...)} works like a {@link PatternMatcher} but compares the ints directly. The patterns can be
+ * converted with {@link #of(BasePattern)} and {@link #toPattern(Comparison)}, so they can be saved like every
+ * other pattern.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ * @see prNet.IntPatternSearch
+ */
+public final class IntPattern {
+	
+	/**
+	 * The value of a wildcard, it's the null of a {@link Pattern}.
+	 */
+	public static final int WILDCARD=Integer.MIN_VALUE;
+	
+	private final int[] elements;
+	
+	private int defaultCount;
+	
+	//the literal segments, created on the first match
+	private Segments segments;
+	
+	/**
+	 * Creates a pattern with a count of 0.
+	 * 
+	 * @param elements The elements, {@link #WILDCARD} is treated like a "*" in regex
+	 */
+	public IntPattern(int...elements) {
+		this.elements=elements.clone();
+	}
+	
+	//takes the array without copying it
+	IntPattern(int[] elements, int defaultCount) {
+		this.elements=elements;
+		this.defaultCount=defaultCount;
+	}
+	
+	
+	/**
+	 * Converts a pattern of integers, null becomes {@link #WILDCARD}. The count of a {@link Pattern} is kept.
+	 * 
+	 * @param pattern The pattern
+	 * @return The int pattern
+	 */
+	public static IntPattern of(BasePattern<Integer> pattern) {
+		return of(pattern, Integer::intValue);
+	}
+	
+	/**
+	 * Converts a pattern with the given function, null becomes {@link #WILDCARD}. The count of a {@link Pattern} is kept.
+	 * 
+	 * @param <T> The type of elements in the pattern
+	 * @param pattern The pattern
+	 * @param toInt Converts an element into an int, it has to agree with the {@link Comparison} of the pattern
+	 * @return The int pattern
+	 */
+	public static <T> IntPattern of(BasePattern<T> pattern, ToIntFunction<? super T> toInt) {
+		List<T> cur=pattern.getElements();
+		int[] ret=new int[cur.size()];
+		for(int i=0; i<ret.length; i++) ret[i]=cur.get(i)==null? WILDCARD: checked(toInt.applyAsInt(cur.get(i)));
+		return new IntPattern(ret, pattern instanceof Pattern? ((Pattern<T>) pattern).getDefaultCount(): 0);
+	}
+	
+	/**
+	 * Converts this pattern into a {@link Pattern} of integers with the same count, a wildcard becomes null.
+	 * 
+	 * @param comparison The {@link Comparison} of the pattern, for example the one of an {@link AspectManager.Aspect}
+	 * @return The pattern
+	 */
+	public Pattern<Integer> toPattern(Comparison<Integer, Integer> comparison) {
+		List<Integer> ret=new ArrayList<>(elements.length);
+		for(int cur:elements) ret.add(cur==WILDCARD? null: cur);
+		Pattern<Integer> pattern=new Pattern<>(ret, comparison);
+		pattern.setDefaultCount(defaultCount);
+		return pattern;
+	}
+	
+	
+	/**
+	 * @return The amount of elements
+	 */
+	public int size() {
+		return elements.length;
+	}
+	
+	/**
+	 * @param index The position
+	 * @return The element at the position, it can be {@link #WILDCARD}
+	 */
+	public int get(int index) {
+		return elements[index];
+	}
+	
+	/**
+	 * @return A copy of all elements
+	 */
+	public int[] toArray() {
+		return elements.clone();
+	}
+	
+	/**
+	 * @return How often this pattern was found
+	 */
+	public int getDefaultCount() {
+		return defaultCount;
+	}
+	
+	void addDefaultCount() {
+		defaultCount++;
+	}
+	
+	
+	/**
+	 * Checks if the pattern matches with the given array, like {@link PatternMatcher#matches(List)}. A pattern that
+	 * ends with a wildcard or contains two in a row never matches.
+	 * 
+	 * @param environment The array, it must not contain {@link #WILDCARD}
+	 * @return If the pattern matches on the array
+	 */
+	public boolean matches(int...environment) {
+		for(int cur:environment) checked(cur);
+		Segments cur=segments;
+		if(cur==null) segments=cur=new Segments(elements);
+		int[] segmentStarts=cur.starts, segmentEnds=cur.ends;
+		if(segmentStarts.length==0) return false;
+		
+		boolean anchored=elements.length==0 || elements[0]!=WILDCARD;
+		int size=environment.length, last=segmentStarts.length-1;
+		if(anchored && last==0) return size==segmentEnds[0] && matchesAt(environment, cur, 0, 0);
+		
+		int pos=0, first=0;
+		if(anchored) {
+			if(!matchesAt(environment, cur, 0, 0)) return false;
+			pos=segmentEnds[0];
+			first=1;
+		}
+		for(int s=first; s<last; s++) {
+			int found=-1, max=size-(segmentEnds[s]-segmentStarts[s]);
+			for(int i=pos; i<=max && found==-1; i++) {
+				if(matchesAt(environment, cur, s, i)) found=i;
+			}
+			if(found==-1) return false;
+			pos=found+segmentEnds[s]-segmentStarts[s];
+		}
+		
+		//the last segment has to end with the array
+		int lastStart=size-(segmentEnds[last]-segmentStarts[last]);
+		return lastStart>=pos && matchesAt(environment, cur, last, lastStart);
+	}
+	
+	private boolean matchesAt(int[] env, Segments segments, int segment, int position) {
+		int start=segments.starts[segment], end=segments.ends[segment];
+		if(position+end-start>env.length) return false;
+		for(int i=start; i<end; i++) {
+			if(env[position+i-start]!=elements[i]) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * The start and end (exclusive) of every literal segment, an invalid pattern has none.
+	 */
+	private static final class Segments {
+		
+		private final int[] starts, ends;
+		
+		Segments(int[] elements) {
+			boolean anchored=elements.length==0 || elements[0]!=WILDCARD;
+			List<int[]> segments=new ArrayList<>();
+			int start=anchored? 0: 1;
+			for(int i=start; i<=elements.length; i++) {
+				if(i==elements.length || elements[i]==WILDCARD) {
+					//an empty segment means two wildcards in a row or a wildcard at the end
+					if(i==start && elements.length>0) {
+						segments.clear();
+						break;
+					}
+					segments.add(new int[] {start, i});
+					start=i+1;
+				}
+			}
+			
+			this.starts=new int[segments.size()];
+			this.ends=new int[segments.size()];
+			for(int i=0; i<starts.length; i++) {
+				starts[i]=segments.get(i)[0];
+				ends[i]=segments.get(i)[1];
+			}
+		}
+	}
+	
+	
+	static int checked(int element) {
+		if(element==WILDCARD) throw new IllegalArgumentException("Integer.MIN_VALUE is reserved for wildcards");
+		return element;
+	}
+	
+	
+	/**
+	 * Two int patterns are equal if they have the same elements, the count isn't compared.
+	 */
+	public boolean equals(Object obj) {
+		return obj instanceof IntPattern && Arrays.equals(elements, ((IntPattern) obj).elements);
+	}
+	
+	public int hashCode() {
+		return Arrays.hashCode(elements);
+	}
+	
+	/**
+	 * @return The elements like the ones of a {@link Pattern}, wildcards are written as null
+	 */
+	public String toString() {
+		StringBuilder ret=new StringBuilder("[");
+		for(int i=0; i<elements.length; i++) {
+			if(i>0) ret.append(", ");
+			ret.append(elements[i]==WILDCARD? "null": String.valueOf(elements[i]));
+		}
+		return ret.append(']').toString();
+	}
+}
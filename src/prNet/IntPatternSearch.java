@@ -0,0 +1,285 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * The pattern search of {@link PatternSearch} for int arrays whose elements are compared by equality. The elements
+ * are never boxed and compared with == instead of a {@link Comparison}, every list is indexed by sorting its values
+ * once.<p>
+ * The result is the same as {@link PatternUsage#findPatterns(Comparison, List)} with integers and
+ * {@code Comparison.byKey(i->i)}, in the same order and with the same counts, only as {@link IntPattern}s.
+ * Other element types can be searched through {@link #toArrays(List, ToIntFunction)}, for example characters
+ * or the states of the nodes of a {@link demo.TwoDimensionalMatrix}.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+public abstract class IntPatternSearch {
+	
+	/**
+	 * Finds all patterns in the given arrays.
+	 * 
+	 * @param input The arrays, they must not contain {@link IntPattern#WILDCARD}
+	 * @return All found patterns
+	 */
+	public static List<IntPattern> findPatterns(int[]...input) {
+		return findPatterns(Arrays.asList(input));
+	}
+	
+	/**
+	 * Finds all patterns in the given arrays.
+	 * 
+	 * @param input The arrays, they must not contain {@link IntPattern#WILDCARD}
+	 * @return All found patterns
+	 */
+	public static List<IntPattern> findPatterns(List<int[]> input) {
+		for(int[] cur:input) {
+			for(int element:cur) IntPattern.checked(element);
+		}
+		
+		Map<Key, IntPattern> found=new LinkedHashMap<>();
+		int size=input.size(), deduplicated=0;
+		for(int i=0; i<size; i++) {
+			Index index1=new Index(input.get(i));
+			List<Key> globret=new ArrayList<>();
+			Set<Key> seen=new HashSet<>();
+			for(int j=0; j<size; j++) {
+				if(j==i) continue;
+				for(int[] arg:findPatternsInPair(index1, input.get(j))) {
+					Key key=new Key(arg);
+					if(seen.add(key)) globret.add(key);
+				}
+			}
+			
+			for(Key key:globret) {
+				IntPattern cur=found.get(key);
+				if(cur==null) {
+					found.put(key, new IntPattern(key.elements, 0));
+				}else {
+					cur.addDefaultCount();
+					deduplicated++;
+				}
+			}
+		}
+		
+		Metrics metrics=Metrics.get();
+		if(metrics.isEnabled()) {
+			metrics.count(Metrics.Counter.PAIRS_COMPARED, (long) size*Math.max(size-1, 0));
+			metrics.count(Metrics.Counter.PATTERNS_EMITTED, found.size());
+			metrics.count(Metrics.Counter.PATTERNS_DEDUPLICATED, deduplicated);
+		}
+		return new ArrayList<>(found.values());
+	}
+	
+	
+	/**
+	 * Converts lists into int arrays.
+	 * 
+	 * @param <T> The type of elements
+	 * @param input The lists
+	 * @param toInt Converts an element into an int, two elements are equal if their ints are equal
+	 * @return One array per list
+	 */
+	public static <T> List<int[]> toArrays(List<List<T>> input, ToIntFunction<? super T> toInt) {
+		List<int[]> ret=new ArrayList<>(input.size());
+		for(List<T> cur:input) {
+			int[] array=new int[cur.size()];
+			int i=0;
+			for(T element:cur) array[i++]=toInt.applyAsInt(element);
+			ret.add(array);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Converts the patterns into {@link Pattern}s, so they can be saved with
+	 * {@link PatternUsage#savePatterns(List, String, java.sql.Statement, AspectManager.Aspect)}.
+	 * 
+	 * @param patterns The int patterns
+	 * @param comparison The {@link Comparison} of the patterns
+	 * @return The patterns in the same order
+	 */
+	public static List<Pattern<Integer>> toPatterns(List<IntPattern> patterns, Comparison<Integer, Integer> comparison) {
+		List<Pattern<Integer>> ret=new ArrayList<>(patterns.size());
+		for(IntPattern cur:patterns) ret.add(cur.toPattern(comparison));
+		return ret;
+	}
+	
+	
+	/**
+	 * Does the same as {@link PatternSearch#findPatternsInPair(KeyIndex, List, Comparison)}. An element list is
+	 * skipped if an earlier one of the pair contains all of its values, which are compared as {@link ValueSets} here.
+	 */
+	static List<int[]> findPatternsInPair(Index list1, int[] list2) {
+		List<int[]> ret=new ArrayList<>();
+		ValueSets retSets=new ValueSets();
+		int size1=list1.size(), size2=list2.length;
+		int[] tempret=new int[size2];
+		for(int start=0; start<size2; start++) {
+			int length=0, cursor=0;
+			for(int k=start; k<size2; k++) {
+				if(cursor>=size1) {
+					//nothing left to find, the rest would only be collapsed into one wildcard
+					if(length>0 && tempret[length-1]!=IntPattern.WILDCARD) tempret[length++]=IntPattern.WILDCARD;
+					break;
+				}
+				int pos=list1.indexOf(list2[k], cursor);
+				if(pos==-1) {
+					if(length>0 && tempret[length-1]!=IntPattern.WILDCARD) tempret[length++]=IntPattern.WILDCARD;
+				}else {
+					tempret[length++]=list2[k];
+					cursor=pos+1;
+				}
+			}
+			
+			if(retSets.add(tempret, length)) ret.add(Arrays.copyOf(tempret, length));
+		}
+		return ret;
+	}
+	
+	
+	/**
+	 * The distinct values of the element lists of one pair as sorted arrays. They are stored by every value they
+	 * contain, so only the sets that contain the first value of a new list are checked.
+	 */
+	static final class ValueSets {
+		
+		private final Map<Integer, List<int[]>> byValue=new HashMap<>();
+		
+		private boolean empty=true;
+		
+		/**
+		 * Adds the values of the list unless an earlier list contains all of them.
+		 * 
+		 * @return If the values were added
+		 */
+		boolean add(int[] list, int length) {
+			if(length==0) {
+				boolean ret=empty;
+				empty=false;
+				return ret;
+			}
+			int[] set=distinct(list, length);
+			List<int[]> candidates=byValue.get(list[0]);
+			if(candidates!=null) {
+				for(int[] cur:candidates) {
+					if(containsAll(cur, set)) return false;
+				}
+			}
+			for(int value:set) byValue.computeIfAbsent(value, k->new ArrayList<>()).add(set);
+			empty=false;
+			return true;
+		}
+		
+		private static int[] distinct(int[] array, int length) {
+			int[] ret=Arrays.copyOf(array, length);
+			Arrays.sort(ret);
+			int n=0;
+			for(int i=0; i<ret.length; i++) {
+				if(i==0 || ret[i]!=ret[n-1]) ret[n++]=ret[i];
+			}
+			return n==ret.length? ret: Arrays.copyOf(ret, n);
+		}
+		
+		//both arrays are sorted and distinct
+		private static boolean containsAll(int[] set, int[] toInclude) {
+			if(toInclude.length>set.length) return false;
+			int i=0;
+			for(int cur:toInclude) {
+				i=Arrays.binarySearch(set, i, set.length, cur);
+				if(i<0) return false;
+				i++;
+			}
+			return true;
+		}
+	}
+	
+	
+	/**
+	 * The positions of every value of an int array, sorted by value and position, so the next position of a value
+	 * is found with two binary searches.
+	 */
+	static final class Index {
+		
+		private final int size;
+		
+		//every distinct value and the start of its positions, the last start is the end
+		private final int[] values, starts;
+		
+		private final int[] positions;
+		
+		Index(int[] array) {
+			this.size=array.length;
+			long[] sorted=new long[array.length];
+			for(int i=0; i<array.length; i++) sorted[i]=(long) array[i]<<32 | i;
+			Arrays.sort(sorted);
+			
+			int[] values=new int[array.length], starts=new int[array.length+1];
+			this.positions=new int[array.length];
+			int n=0;
+			for(int i=0; i<sorted.length; i++) {
+				int value=(int) (sorted[i]>>32);
+				if(n==0 || values[n-1]!=value) {
+					values[n]=value;
+					starts[n]=i;
+					n++;
+				}
+				positions[i]=(int) sorted[i];
+			}
+			starts[n]=sorted.length;
+			this.values=Arrays.copyOf(values, n);
+			this.starts=Arrays.copyOf(starts, n+1);
+		}
+		
+		int size() {
+			return size;
+		}
+		
+		/**
+		 * @return The first position of the value at or after from or -1
+		 */
+		int indexOf(int value, int from) {
+			int v=Arrays.binarySearch(values, value);
+			if(v<0) return -1;
+			int p=Arrays.binarySearch(positions, starts[v], starts[v+1], from);
+			if(p<0) p=-p-1;
+			return p<starts[v+1]? positions[p]: -1;
+		}
+	}
+	
+	/**
+	 * An element list as key of a hash-based collection.
+	 */
+	static final class Key {
+		
+		private final int[] elements;
+		
+		private final int hash;
+		
+		Key(int[] elements) {
+			this.elements=elements;
+			this.hash=Arrays.hashCode(elements);
+		}
+		
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(elements, ((Key) obj).elements);
+		}
+		
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
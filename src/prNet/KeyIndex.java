@@ -0,0 +1,211 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index over the positions of all elements in a list. If the {@link Comparison} has an equivalence key,
+ * the positions of every key are stored in a hash map, so looking up an element takes constant time. Otherwise
+ * every lookup falls back to scanning the list like the methods in {@link PatternSearch} do.<p>
+ * The index doesn't notice later changes of the list.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ * @param <T> The type of elements in the list
+ * @see prNet.Comparison#equivalenceKey(Object)
+ */
+public class KeyIndex<T> {
+	
+	/**
+	 * The key that represents a null element in {@link #keysOf(List, Comparison)}.
+	 */
+	static final Object WILDCARD=new Object();
+	
+	private static final int[] NONE=new int[0];
+	
+	private List<T> list;
+	
+	private Comparison<T, T> comparison;
+	
+	//sorted positions of every key, null if the comparison has no key
+	private Map<Object, int[]> positions;
+	
+	private int[] nullPositions;
+	
+	/**
+	 * Creates an index over the given list.
+	 * 
+	 * @param list The list, it should support random access
+	 * @param comparison The {@link Comparison} used to check if 2 elements are equal
+	 */
+	public KeyIndex(List<T> list, Comparison<T, T> comparison) {
+		this.list=list;
+		this.comparison=comparison;
+		if(!comparison.hasEquivalenceKey()) return;
+		
+		Map<Object, int[]> growing=new HashMap<>();
+		List<Integer> nulls=new ArrayList<>();
+		for(int i=0; i<list.size(); i++) {
+			T cur=list.get(i);
+			if(cur==null) {
+				nulls.add(i);
+				continue;
+			}
+			//the first slot counts the used positions, the array grows like an ArrayList
+			Object key=comparison.equivalenceKey(cur);
+			int[] cPos=growing.get(key);
+			if(cPos==null) {
+				cPos=new int[4];
+				growing.put(key, cPos);
+			}else if(cPos[0]+1==cPos.length) {
+				cPos=Arrays.copyOf(cPos, cPos.length*2);
+				growing.put(key, cPos);
+			}
+			cPos[++cPos[0]]=i;
+		}
+		
+		positions=new HashMap<>(growing.size()*4/3+1);
+		growing.forEach((k, v)->positions.put(k, Arrays.copyOfRange(v, 1, v[0]+1)));
+		nullPositions=nulls.stream().mapToInt(Integer::intValue).toArray();
+	}
+	
+	
+	/**
+	 * @return If lookups use the hash index
+	 */
+	public boolean isHashed() {
+		return positions!=null;
+	}
+	
+	/**
+	 * @return The indexed list
+	 */
+	public List<T> getList() {
+		return list;
+	}
+	
+	public T get(int index) {
+		return list.get(index);
+	}
+	
+	public int size() {
+		return list.size();
+	}
+	
+	
+	/**
+	 * Finds the first position of an element that is equal to the given one.
+	 * 
+	 * @param item The element to find
+	 * @return The first position or -1
+	 */
+	public int indexOf(T item) {
+		return indexOf(item, 0);
+	}
+	
+	/**
+	 * Finds the first position at or after the given position of an element that is equal to the given one.
+	 * 
+	 * @param item The element to find
+	 * @param from The first position that is checked
+	 * @return The position or -1
+	 */
+	public int indexOf(T item, int from) {
+		if(positions==null) return PatternSearch.indexOf(list, item, from, comparison);
+		int[] cPos=positionsOf(item);
+		int i=firstAtLeast(cPos, from);
+		return i<cPos.length? cPos[i]: -1;
+	}
+	
+	
+	/**
+	 * Finds all positions of elements that are equal to the given one, null only matches null.
+	 * 
+	 * @param item The element to find
+	 * @return All positions in ascending order
+	 */
+	public List<Integer> allIndicesOf(T item) {
+		return allIndicesOf(item, 0);
+	}
+	
+	/**
+	 * Finds all positions at or after the given position of elements that are equal to the given one,
+	 * null only matches null.
+	 * 
+	 * @param item The element to find
+	 * @param from The first position that is checked
+	 * @return All positions in ascending order
+	 */
+	public List<Integer> allIndicesOf(T item, int from) {
+		List<Integer> ret=new ArrayList<>();
+		if(positions==null) {
+			for(int c:PatternSearch.allIndicesOf(list.subList(from, list.size()), item, comparison)) ret.add(c+from);
+			return ret;
+		}
+		int[] cPos=positionsOf(item);
+		for(int i=firstAtLeast(cPos, from); i<cPos.length; i++) ret.add(cPos[i]);
+		return ret;
+	}
+	
+	
+	/**
+	 * Checks if the list contains an element that is equal to the given one, null only matches null.
+	 * 
+	 * @param item The element to find
+	 * @return If the element is contained
+	 */
+	public boolean contains(T item) {
+		if(positions==null) return PatternSearch.contains(list, item, comparison);
+		return positionsOf(item).length>0;
+	}
+	
+	/**
+	 * Checks if the list contains all given elements.
+	 * 
+	 * @param toInclude The elements to find
+	 * @return If all elements are contained
+	 */
+	public boolean containsAll(List<T> toInclude) {
+		for(T con:toInclude) {
+			if(!contains(con)) return false;
+		}
+		return true;
+	}
+	
+	
+	private int[] positionsOf(T item) {
+		if(item==null) return nullPositions;
+		int[] ret=positions.get(comparison.equivalenceKey(item));
+		return ret==null? NONE: ret;
+	}
+	
+	private static int firstAtLeast(int[] sorted, int from) {
+		if(from<=0) return 0;
+		int i=Arrays.binarySearch(sorted, from);
+		return i<0? -i-1: i;
+	}
+	
+	
+	/**
+	 * Converts every element of the list into its equivalence key, null becomes {@link #WILDCARD}. Two lists are
+	 * equal under the comparison, null only being equal to null, if and only if their keys are equal.
+	 * 
+	 * @param <T> The type of elements
+	 * @param list The list to convert
+	 * @param comparison A {@link Comparison} with an equivalence key
+	 * @return The keys of all elements
+	 */
+	static <T> List<Object> keysOf(List<T> list, Comparison<T, T> comparison) {
+		List<Object> ret=new ArrayList<>(list.size());
+		for(T cur:list) ret.add(cur==null? WILDCARD: comparison.equivalenceKey(cur));
+		return ret;
+	}
+}
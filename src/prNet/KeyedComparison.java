@@ -0,0 +1,56 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A {@link Comparison} that supports an equivalence key.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ * @param <T> The type of elements
+ * @see prNet.Comparison#keyed(Comparison, Comparison.Key)
+ */
+final class KeyedComparison<T> implements Comparison<T, T> {
+	
+	private static final long serialVersionUID=-6160553407815526178L;
+	
+	private Comparison<T, T> comparison;
+	
+	private Key<T> key;
+	
+	KeyedComparison(Comparison<T, T> comparison, Key<T> key) {
+		this.comparison=Objects.requireNonNull(comparison);
+		this.key=Objects.requireNonNull(key);
+	}
+	
+	@Override
+	public boolean compare(T t1, T t2) {
+		return comparison.compare(t1, t2);
+	}
+	
+	@Override
+	public boolean hasEquivalenceKey() {
+		return true;
+	}
+	
+	@Override
+	public Object equivalenceKey(T t) {
+		return key.apply(t);
+	}
+	
+	/**
+	 * Logical and. If the other comparison has an equivalence key too, the result has the pair of both keys as its key.
+	 */
+	@Override
+	public Comparison<T, T> and(Comparison<T, T> other) {
+		Comparison<T, T> ret=Comparison.super.and(other);
+		if(!other.hasEquivalenceKey()) return ret;
+		return new KeyedComparison<>(ret, t->Arrays.asList(key.apply(t), other.equivalenceKey(t)));
+	}
+}
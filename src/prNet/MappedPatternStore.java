@@ -0,0 +1,612 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ObjDoubleConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link PatternStore} in two files of a directory: an append-only log of all saves and a sorted index that is
+ * mapped into memory with {@link FileChannel#map(FileChannel.MapMode, long, long)}.<p>
+ * Every save is one record of the log with a checksum and is kept in memory until the next compaction, which merges
+ * the log into a new index and adds up the counts of equal keys and authors. The index stores every key once and
+ * one entry of a fixed size per key and author, sorted by key, so a key is found with a binary search that compares
+ * the bytes in the mapped file without copying them. The entries are also listed by author for
+ * {@link #getBlobs(String)}.<p>
+ * If the program stops during a save, the incomplete record is cut off the next time the store is opened. Every
+ * compaction writes the index of a new generation into its own file, "patterns.&lt;generation&gt;.idx", and the
+ * log belongs to the index of the same generation, so a log that was already merged is never replayed again. A
+ * mapped file is never replaced, which some systems don't allow, older generations are deleted as soon as that's
+ * possible. The index is limited to 2 GB.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+public class MappedPatternStore implements PatternStore {
+	
+	/**
+	 * The amount of saved keys and authors after which the log is merged into the index.
+	 */
+	public static final int DEFAULT_COMPACT_AFTER=1<<16;
+	
+	private static final int INDEX_MAGIC=0x704e4958, LOG_MAGIC=0x704e4c47, VERSION=1;
+	
+	//the header of the index: magic, version, generation, the amounts of authors and entries and four offsets
+	private static final int HEADER_SIZE=40, LOG_HEADER_SIZE=12;
+	
+	//the offset of the key, the author, the count and the offset and length of the blob
+	private static final int ENTRY_SIZE=20;
+	
+	private final Path directory, logFile;
+	
+	private final int compactAfter;
+	
+	//the compacted patterns, null if nothing was compacted yet
+	private MappedByteBuffer index;
+	
+	private long generation;
+	
+	private int indexAuthors, entryCount, entriesOffset, authorStartsOffset, byAuthorOffset;
+	
+	private List<String> authors;
+	
+	private Map<String, Integer> authorIds;
+	
+	private long[] totals;
+	
+	private FileChannel log;
+	
+	//the patterns that were saved since the last compaction by key and author
+	private Map<String, Map<Integer, Pending>> pending;
+	
+	private int pendingCount;
+	
+	//the log still belongs to the previous generation because it couldn't be reset after a compaction
+	private boolean logStale;
+	
+	//the reason the last compaction failed, it's tried again with the next save
+	private IOException compactFailure;
+	
+	private boolean closed;
+	
+	/**
+	 * Opens or creates a store that is compacted after {@link #DEFAULT_COMPACT_AFTER} saved keys and authors.
+	 * 
+	 * @param directory The directory of the files, it's created if it doesn't exist
+	 * @throws IOException
+	 */
+	public MappedPatternStore(Path directory) throws IOException {
+		this(directory, DEFAULT_COMPACT_AFTER);
+	}
+	
+	/**
+	 * Opens or creates a store.
+	 * 
+	 * @param directory The directory of the files, it's created if it doesn't exist
+	 * @param compactAfter The amount of saved keys and authors after which the log is merged into the index
+	 * @throws IOException
+	 */
+	public MappedPatternStore(Path directory, int compactAfter) throws IOException {
+		Files.createDirectories(directory);
+		this.directory=directory;
+		this.logFile=directory.resolve("patterns.log");
+		this.compactAfter=compactAfter;
+		this.authors=new ArrayList<>();
+		this.authorIds=new HashMap<>();
+		this.totals=new long[8];
+		this.pending=new HashMap<>();
+		long latest=-1;
+		try(DirectoryStream<Path> files=Files.newDirectoryStream(directory, "patterns.*.idx")) {
+			for(Path cur:files) latest=Math.max(latest, generationOf(cur));
+		}
+		if(latest>=0) mapIndex(latest);
+		openLog();
+		deleteOldIndexes();
+	}
+	
+	
+	/**
+	 * Saves the entries like {@link PatternStore#save(String, List)}. They are saved as soon as their record is in the
+	 * log, a compaction that follows is part of the save but a failure of it isn't thrown: the entries stay in the log
+	 * and the compaction is tried again with the next save, {@link #getCompactFailure()} returns the reason.
+	 */
+	public synchronized void save(String author, List<Entry> entries) throws IOException {
+		checkOpen();
+		//the records of this generation mustn't be appended to the log of the previous one
+		if(logStale) resetLog();
+		
+		ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+		DataOutputStream out=new DataOutputStream(bytes);
+		writeString(out, author);
+		out.writeInt(entries.size());
+		for(Entry cur:entries) {
+			writeString(out, cur.key());
+			out.writeInt(cur.count());
+			out.writeInt(cur.blob().length);
+			out.write(cur.blob());
+		}
+		byte[] payload=bytes.toByteArray();
+		
+		ByteBuffer record=ByteBuffer.allocate(8+payload.length);
+		record.putInt(payload.length).putInt(checksum(payload)).put(payload).flip();
+		long start=log.position();
+		try {
+			while(record.hasRemaining()) log.write(record);
+			log.force(false);
+		}catch(IOException e) {
+			log.truncate(start);
+			throw e;
+		}
+		
+		for(Entry cur:entries) apply(author, cur.key(), cur.count(), cur.blob());
+		if(pendingCount>=compactAfter) {
+			try {
+				compact();
+			}catch(IOException e) {
+				compactFailure=e;
+			}
+		}
+	}
+	
+	public synchronized int getCount(String key, String author) {
+		checkOpen();
+		Integer id=authorIds.get(author);
+		if(id==null) return 0;
+		
+		int ret=0;
+		int first=find(key.getBytes(StandardCharsets.UTF_8));
+		for(int e=first; e!=-1 && e<entryCount && keyOffset(e)==keyOffset(first); e++) {
+			if(index.getInt(entry(e)+4)==id) ret+=index.getInt(entry(e)+8);
+		}
+		Map<Integer, Pending> cur=pending.get(key);
+		Pending saved=cur==null? null: cur.get(id);
+		return saved==null? ret: ret+saved.count;
+	}
+	
+	public synchronized long getTotal(String author) {
+		checkOpen();
+		Integer id=authorIds.get(author);
+		return id==null? 0: totals[id];
+	}
+	
+	public synchronized List<byte[]> getBlobs(String author) {
+		checkOpen();
+		List<byte[]> ret=new ArrayList<>();
+		Integer id=authorIds.get(author);
+		if(id==null) return ret;
+		
+		if(id<indexAuthors) {
+			int from=index.getInt(authorStartsOffset+4*id), to=index.getInt(authorStartsOffset+4*(id+1));
+			for(int i=from; i<to; i++) ret.add(blobOf(index.getInt(byAuthorOffset+4*i)));
+		}
+		for(Map<Integer, Pending> cur:pending.values()) {
+			Pending saved=cur.get(id);
+			if(saved!=null && saved.blob!=null) ret.add(saved.blob);
+		}
+		return ret;
+	}
+	
+	public synchronized void score(List<String> textKeys, boolean ignoreLow, boolean highest, boolean percent, int min, int max, ObjDoubleConsumer<String> result) {
+		checkOpen();
+		AuthorIndex.score(textKeys, this::postingsOf, authors, totals, ignoreLow, highest, percent, min, max, result);
+	}
+	
+	/**
+	 * Closes the log, the mapped index is released by the garbage collector. Afterwards all methods but this one throw
+	 * an {@link IllegalStateException}.
+	 */
+	public synchronized void close() throws IOException {
+		closed=true;
+		log.close();
+		index=null;
+	}
+	
+	/**
+	 * @return The reason the last compaction of {@link #save(String, List)} failed or null if it succeeded
+	 */
+	public synchronized IOException getCompactFailure() {
+		return compactFailure;
+	}
+	
+	
+	/**
+	 * Merges the log into a new index, the counts of equal keys and authors are added up. Afterwards the log is empty.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void compact() throws IOException {
+		checkOpen();
+		if(pendingCount==0) return;
+		
+		//the saved patterns sorted like the index, by the bytes of their keys
+		List<byte[]> keys=new ArrayList<>(pending.size());
+		Map<byte[], Map<Integer, Pending>> byKey=new HashMap<>();
+		for(Map.Entry<String, Map<Integer, Pending>> cur:pending.entrySet()) {
+			byte[] key=cur.getKey().getBytes(StandardCharsets.UTF_8);
+			keys.add(key);
+			byKey.put(key, cur.getValue());
+		}
+		keys.sort(Arrays::compareUnsigned);
+		
+		Path target=indexFile(generation+1), tmp=target.resolveSibling(target.getFileName()+".tmp");
+		try(FileChannel channel=FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			DataOutputStream out=new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1<<16));
+			out.write(new byte[HEADER_SIZE]);
+			
+			//five ints per entry, written after all keys and blobs
+			int[] entries=new int[5*(entryCount+pendingCount)];
+			int count=0, e=0, p=0;
+			while(e<entryCount || p<keys.size()) {
+				int c=e==entryCount? 1: p==keys.size()? -1: compareKey(keyOffset(e), keys.get(p));
+				int keyPos=out.size();
+				if(c<=0) {
+					writeBytes(out, keyBytes(keyOffset(e)));
+				}else {
+					writeBytes(out, keys.get(p));
+				}
+				
+				//the entries of the index and the saved ones of this key, both sorted by author
+				Iterator<Map.Entry<Integer, Pending>> saved=c>=0? new TreeMap<>(byKey.get(keys.get(p++))).entrySet().iterator(): Collections.emptyIterator();
+				Map.Entry<Integer, Pending> next=saved.hasNext()? saved.next(): null;
+				int groupEnd=e;
+				while(c<=0 && groupEnd<entryCount && keyOffset(groupEnd)==keyOffset(e)) groupEnd++;
+				while(e<groupEnd || next!=null) {
+					int indexed=e<groupEnd? index.getInt(entry(e)+4): Integer.MAX_VALUE;
+					int author=next==null? indexed: Math.min(indexed, next.getKey());
+					int amount=0;
+					byte[] blob=null;
+					if(next!=null && next.getKey()==author) {
+						amount=next.getValue().count;
+						blob=next.getValue().blob;
+						next=saved.hasNext()? saved.next(): null;
+					}
+					if(indexed==author) {
+						amount+=index.getInt(entry(e)+8);
+						blob=blobOf(e++);
+					}
+					
+					entries[5*count]=keyPos;
+					entries[5*count+1]=author;
+					entries[5*count+2]=amount;
+					entries[5*count+3]=out.size();
+					entries[5*count+4]=blob.length;
+					out.write(blob);
+					count++;
+				}
+			}
+			
+			int newEntriesOffset=out.size();
+			for(int i=0; i<5*count; i++) out.writeInt(entries[i]);
+			
+			//the entries grouped by author with a counting sort
+			int[] starts=new int[authors.size()+1];
+			for(int i=0; i<count; i++) starts[entries[5*i+1]+1]++;
+			for(int i=0; i<authors.size(); i++) starts[i+1]+=starts[i];
+			int[] byAuthor=new int[count], next=Arrays.copyOf(starts, authors.size());
+			for(int i=0; i<count; i++) byAuthor[next[entries[5*i+1]]++]=i;
+			int newAuthorStartsOffset=out.size();
+			for(int cur:starts) out.writeInt(cur);
+			int newByAuthorOffset=out.size();
+			for(int cur:byAuthor) out.writeInt(cur);
+			
+			int authorsOffset=out.size();
+			for(int i=0; i<authors.size(); i++) {
+				out.writeLong(totals[i]);
+				writeString(out, authors.get(i));
+			}
+			out.flush();
+			if(out.size()==Integer.MAX_VALUE) throw new IOException("The index of "+directory+" would be larger than 2 GB");
+			
+			ByteBuffer header=ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(INDEX_MAGIC).putInt(VERSION).putLong(generation+1)
+					.putInt(authors.size()).putInt(count)
+					.putInt(authorsOffset).putInt(newEntriesOffset).putInt(newAuthorStartsOffset).putInt(newByAuthorOffset)
+					.flip();
+			channel.write(header, 0);
+			channel.force(true);
+		}
+		Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+		
+		mapIndex(generation+1);
+		pending.clear();
+		pendingCount=0;
+		compactFailure=null;
+		resetLog();
+		deleteOldIndexes();
+	}
+	
+	
+	private void checkOpen() {
+		if(closed) throw new IllegalStateException("The store of "+directory+" is closed");
+	}
+	
+	
+	private Path indexFile(long generation) {
+		return directory.resolve("patterns."+generation+".idx");
+	}
+	
+	/**
+	 * @return The generation in the name of an index file or -1
+	 */
+	private static long generationOf(Path file) {
+		String name=file.getFileName().toString();
+		try {
+			return Long.parseLong(name.substring("patterns.".length(), name.length()-".idx".length()));
+		}catch(NumberFormatException | IndexOutOfBoundsException e) {
+			return -1;
+		}
+	}
+	
+	//deletes the indexes of older generations and unfinished compactions, a file that is still mapped is kept until the next time
+	private void deleteOldIndexes() {
+		try(DirectoryStream<Path> files=Files.newDirectoryStream(directory, "patterns.*.idx*")) {
+			for(Path cur:files) {
+				String name=cur.getFileName().toString();
+				if(!name.endsWith(".tmp") && generationOf(cur)>=generation) continue;
+				try {
+					Files.deleteIfExists(cur);
+				}catch(IOException e) {
+					//the old mapping isn't released yet
+				}
+			}
+		}catch(IOException e) {
+			//the files are deleted after the next compaction or when the store is opened again
+		}
+	}
+	
+	private void mapIndex(long generation) throws IOException {
+		Path indexFile=indexFile(generation);
+		MappedByteBuffer mapped;
+		try(FileChannel channel=FileChannel.open(indexFile, StandardOpenOption.READ)) {
+			if(channel.size()>Integer.MAX_VALUE) throw new IOException(indexFile+" is larger than 2 GB");
+			mapped=channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if(mapped.capacity()<HEADER_SIZE || mapped.getInt(0)!=INDEX_MAGIC || mapped.getInt(4)!=VERSION) throw new IOException(indexFile+" isn't a pattern index");
+		if(mapped.getLong(8)!=generation) throw new IOException(indexFile+" doesn't contain the generation of its name");
+		
+		//the current index is only replaced by a valid one
+		index=mapped;
+		this.generation=generation;
+		indexAuthors=index.getInt(16);
+		entryCount=index.getInt(20);
+		entriesOffset=index.getInt(28);
+		authorStartsOffset=index.getInt(32);
+		byAuthorOffset=index.getInt(36);
+		
+		authors.clear();
+		authorIds.clear();
+		totals=new long[Math.max(8, indexAuthors)];
+		int pos=index.getInt(24);
+		for(int i=0; i<indexAuthors; i++) {
+			totals[i]=index.getLong(pos);
+			byte[] author=keyBytes(pos+8);
+			idOf(new String(author, StandardCharsets.UTF_8));
+			pos+=12+author.length;
+		}
+	}
+	
+	private void openLog() throws IOException {
+		log=FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		long size=log.size();
+		if(size<LOG_HEADER_SIZE) {
+			resetLog();
+			return;
+		}
+		
+		ByteBuffer header=read(0, LOG_HEADER_SIZE);
+		if(header.getInt(0)!=LOG_MAGIC) throw new IOException(logFile+" isn't a pattern log");
+		//the log was already merged into the index before the program stopped
+		if(header.getLong(4)!=generation) {
+			resetLog();
+			return;
+		}
+		
+		long pos=LOG_HEADER_SIZE;
+		while(pos+8<=size) {
+			ByteBuffer recordHeader=read(pos, 8);
+			int length=recordHeader.getInt(0);
+			if(length<0 || pos+8+length>size) break;
+			ByteBuffer payload=read(pos+8, length);
+			if(checksum(payload.array())!=recordHeader.getInt(4)) break;
+			
+			String author=readString(payload);
+			int entries=payload.getInt();
+			for(int i=0; i<entries; i++) {
+				String key=readString(payload);
+				int count=payload.getInt();
+				byte[] blob=new byte[payload.getInt()];
+				payload.get(blob);
+				apply(author, key, count, blob);
+			}
+			pos+=8+length;
+		}
+		//an incomplete record of a save that didn't finish
+		if(pos<size) log.truncate(pos);
+		log.position(pos);
+	}
+	
+	private void resetLog() throws IOException {
+		logStale=true;
+		log.truncate(0);
+		ByteBuffer header=ByteBuffer.allocate(LOG_HEADER_SIZE);
+		header.putInt(LOG_MAGIC).putLong(generation).flip();
+		log.write(header, 0);
+		log.force(true);
+		log.position(LOG_HEADER_SIZE);
+		logStale=false;
+	}
+	
+	private ByteBuffer read(long pos, int length) throws IOException {
+		ByteBuffer ret=ByteBuffer.allocate(length);
+		while(ret.hasRemaining()) {
+			if(log.read(ret, pos+ret.position())<0) throw new IOException("Unexpected end of "+logFile);
+		}
+		return ret.flip();
+	}
+	
+	
+	private void apply(String author, String key, int count, byte[] blob) {
+		int id=idOf(author);
+		totals[id]+=count;
+		
+		Map<Integer, Pending> cur=pending.computeIfAbsent(key, k->new HashMap<>());
+		Pending saved=cur.get(id);
+		if(saved==null) {
+			saved=new Pending();
+			//a pattern that is already in the index keeps its blob
+			if(!isIndexed(key, id)) saved.blob=blob;
+			cur.put(id, saved);
+			pendingCount++;
+		}
+		saved.count+=count;
+	}
+	
+	private boolean isIndexed(String key, int author) {
+		int first=find(key.getBytes(StandardCharsets.UTF_8));
+		for(int e=first; e!=-1 && e<entryCount && keyOffset(e)==keyOffset(first); e++) {
+			if(index.getInt(entry(e)+4)==author) return true;
+		}
+		return false;
+	}
+	
+	//the counts of a key in the format of the postings of an AuthorIndex
+	private int[] postingsOf(String key) {
+		Map<Integer, Pending> saved=pending.get(key);
+		int first=find(key.getBytes(StandardCharsets.UTF_8));
+		if(first==-1 && saved==null) return null;
+		
+		int end=first;
+		while(first!=-1 && end<entryCount && keyOffset(end)==keyOffset(first)) end++;
+		int[] ret=new int[1+2*((first==-1? 0: end-first)+(saved==null? 0: saved.size()))];
+		ret[0]=1;
+		for(int e=first; e!=-1 && e<end; e++) {
+			ret[ret[0]]=index.getInt(entry(e)+4);
+			ret[ret[0]+1]=index.getInt(entry(e)+8);
+			ret[0]+=2;
+		}
+		if(saved!=null) {
+			for(Map.Entry<Integer, Pending> cur:saved.entrySet()) {
+				int i=1;
+				while(i<ret[0] && ret[i]!=cur.getKey()) i+=2;
+				if(i==ret[0]) {
+					ret[i]=cur.getKey();
+					ret[0]+=2;
+				}
+				ret[i+1]+=cur.getValue().count;
+			}
+		}
+		return ret;
+	}
+	
+	private int idOf(String author) {
+		Integer ret=authorIds.get(author);
+		if(ret!=null) return ret;
+		
+		ret=authors.size();
+		authorIds.put(author, ret);
+		authors.add(author);
+		if(ret==totals.length) totals=Arrays.copyOf(totals, totals.length*2);
+		return ret;
+	}
+	
+	
+	/**
+	 * @return The first entry of the key or -1
+	 */
+	private int find(byte[] key) {
+		if(index==null) return -1;
+		int low=0, high=entryCount;
+		while(low<high) {
+			int mid=(low+high)>>>1;
+			if(compareKey(keyOffset(mid), key)<0) low=mid+1;
+			else high=mid;
+		}
+		return low<entryCount && compareKey(keyOffset(low), key)==0? low: -1;
+	}
+	
+	//compares the key at the offset in the index with the given one by their unsigned bytes
+	private int compareKey(int offset, byte[] key) {
+		int length=index.getInt(offset);
+		for(int i=0; i<Math.min(length, key.length); i++) {
+			int c=Byte.toUnsignedInt(index.get(offset+4+i))-Byte.toUnsignedInt(key[i]);
+			if(c!=0) return c;
+		}
+		return length-key.length;
+	}
+	
+	private int entry(int e) {
+		return entriesOffset+ENTRY_SIZE*e;
+	}
+	
+	private int keyOffset(int e) {
+		return index.getInt(entry(e));
+	}
+	
+	private byte[] keyBytes(int offset) {
+		byte[] ret=new byte[index.getInt(offset)];
+		index.get(offset+4, ret);
+		return ret;
+	}
+	
+	private byte[] blobOf(int e) {
+		byte[] ret=new byte[index.getInt(entry(e)+16)];
+		index.get(index.getInt(entry(e)+12), ret);
+		return ret;
+	}
+	
+	
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+		out.writeInt(value.length);
+		out.write(value);
+	}
+	
+	private static String readString(ByteBuffer in) {
+		byte[] ret=new byte[in.getInt()];
+		in.get(ret);
+		return new String(ret, StandardCharsets.UTF_8);
+	}
+	
+	private static int checksum(byte[] payload) {
+		CRC32 ret=new CRC32();
+		ret.update(payload);
+		return (int) ret.getValue();
+	}
+	
+	
+	//the count and the blob of a pattern that was saved since the last compaction, the blob is null if it's indexed
+	private static final class Pending {
+		
+		private int count;
+		
+		private byte[] blob;
+	}
+}
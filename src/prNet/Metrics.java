@@ -0,0 +1,206 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+/**
+ * The instrumentation of the hot paths. The search, matching, scoring and saving report what they did to the
+ * installed metrics, which are {@link #NOOP} by default. {@link MetricsRegistry} collects everything in-process.<p>
+ * The hot paths count in local variables and report once per call or per found pattern, so the metrics don't
+ * cost a call per compared element. Only counting the invocations of {@link Comparison#compare(Object, Object)} in the
+ * search needs a wrapper around the comparison. It's only used while metrics are enabled, counts in a plain field and
+ * every task of a search has its own, which is reported once.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+public abstract class Metrics {
+	
+	/**
+	 * The counted events.
+	 */
+	public static enum Counter {
+		/**
+		 * Pairs of two inputs that were compared by a search.
+		 */
+		PAIRS_COMPARED,
+		/**
+		 * Invocations of {@link Comparison#compare(Object, Object)} by a search or a {@link PatternMatcher}.
+		 */
+		COMPARISONS,
+		/**
+		 * Positions a {@link PatternMatcher} tried for a segment after a wildcard and branches of a manipulation.
+		 */
+		MATCH_BRANCHES,
+		/**
+		 * Patterns that were added to a {@link PatternAccumulator} for the first time.
+		 */
+		PATTERNS_EMITTED,
+		/**
+		 * Patterns that were counted up by a {@link PatternAccumulator} because an equal one was already added.
+		 */
+		PATTERNS_DEDUPLICATED,
+		/**
+		 * Statements and batches that were sent to the database by {@link SQLoperations}.
+		 */
+		SQL_STATEMENTS
+	}
+	
+	/**
+	 * The timed operations, their latency is recorded per {@link AspectManager.Aspect}.
+	 */
+	public static enum Timer {
+		/**
+		 * {@link PatternUsage#findPatterns(AspectManager.Aspect, java.util.List, SearchMode)} and the search of
+		 * {@link PatternUsage#findAndSavePatterns(java.util.List, String, java.sql.Statement, AspectManager.Aspect)}
+		 */
+		SEARCH,
+		/**
+		 * {@link PatternUsage#findMatchingAuthors(java.util.List, AspectManager.Aspect, java.sql.Connection, boolean, int, int, int)}
+		 * and {@link PatternUsage#findTopAuthors(java.util.List, AspectManager.Aspect, java.sql.Connection, boolean, int, int, int, int)}
+		 */
+		SCORE,
+		/**
+		 * {@link PatternUsage#savePatterns(java.util.List, String, java.sql.Statement, AspectManager.Aspect)}
+		 */
+		SAVE
+	}
+	
+	/**
+	 * The metrics that ignore everything.
+	 */
+	public static final Metrics NOOP=new Metrics() {
+		public void count(Counter counter, long amount) {}
+		
+		public void record(Timer timer, String aspect, long nanos) {}
+		
+		public boolean isEnabled() {
+			return false;
+		}
+		
+		public long start() {
+			return 0;
+		}
+	};
+	
+	private static volatile Metrics current=NOOP;
+	
+	
+	/**
+	 * @return The installed metrics
+	 */
+	public static Metrics get() {
+		return current;
+	}
+	
+	/**
+	 * Installs the metrics that all later operations report to.
+	 * 
+	 * @param metrics The metrics or null to disable them
+	 */
+	public static void set(Metrics metrics) {
+		current=metrics==null? NOOP: metrics;
+	}
+	
+	
+	/**
+	 * Adds the amount to a counter, it's called from many threads at once.
+	 * 
+	 * @param counter The counter
+	 * @param amount The amount
+	 */
+	public abstract void count(Counter counter, long amount);
+	
+	/**
+	 * Records the latency of an operation, it's called from many threads at once.
+	 * 
+	 * @param timer The operation
+	 * @param aspect The name of the aspect
+	 * @param nanos The latency in nanoseconds
+	 */
+	public abstract void record(Timer timer, String aspect, long nanos);
+	
+	/**
+	 * @return If anything is recorded, the hot paths skip the counting if not
+	 */
+	public boolean isEnabled() {
+		return true;
+	}
+	
+	/**
+	 * @return The start time of an operation for {@link #stop(Timer, String, long)}
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Records the latency since the given start time.
+	 * 
+	 * @param timer The operation
+	 * @param aspect The name of the aspect
+	 * @param start The time returned by {@link #start()}
+	 */
+	public void stop(Timer timer, String aspect, long start) {
+		if(isEnabled()) record(timer, aspect, System.nanoTime()-start);
+	}
+	
+	
+	/**
+	 * Returns the comparison one task of a search uses. If the metrics are enabled, it's a {@link CountingComparison}
+	 * that keeps the equivalence key of the given one and is reported with {@link #report(Metrics, Comparison)} at the
+	 * end of the task, otherwise it's the given comparison.
+	 * 
+	 * @param metrics The installed metrics
+	 * @param comparison The comparison of the search
+	 * @return The comparison of the task
+	 */
+	static <T> Comparison<T, T> counting(Metrics metrics, Comparison<T, T> comparison) {
+		if(!metrics.isEnabled()) return comparison;
+		return new CountingComparison<>(comparison);
+	}
+	
+	/**
+	 * Reports the invocations of a comparison returned by {@link #counting(Metrics, Comparison)}, if it counts them.
+	 * 
+	 * @param metrics The installed metrics
+	 * @param comparison The comparison of the task
+	 */
+	static void report(Metrics metrics, Comparison<?, ?> comparison) {
+		if(comparison instanceof CountingComparison) ((CountingComparison<?>) comparison).report(metrics);
+	}
+	
+	//counts in a plain field, so it's only used by one task at a time
+	static final class CountingComparison<T> implements Comparison<T, T> {
+		
+		private static final long serialVersionUID=1L;
+		
+		private final Comparison<T, T> comparison;
+		
+		private transient long invocations;
+		
+		private CountingComparison(Comparison<T, T> comparison) {
+			this.comparison=comparison;
+		}
+		
+		public boolean compare(T t1, T t2) {
+			invocations++;
+			return comparison.compare(t1, t2);
+		}
+		
+		public boolean hasEquivalenceKey() {
+			return comparison.hasEquivalenceKey();
+		}
+		
+		public Object equivalenceKey(T t) {
+			return comparison.equivalenceKey(t);
+		}
+		
+		void report(Metrics metrics) {
+			metrics.count(Counter.COMPARISONS, invocations);
+			invocations=0;
+		}
+	}
+}
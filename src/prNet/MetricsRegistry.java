@@ -0,0 +1,146 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link Metrics} that are collected in memory. Counters are {@link LongAdder}s and latencies are stored in
+ * histograms with one bucket per power of 2, so recording never allocates once an aspect was seen and threads
+ * don't block each other.<p>
+ * Install it with {@link Metrics#set(Metrics)}.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ */
+public class MetricsRegistry extends Metrics {
+	
+	private Map<Counter, LongAdder> counters;
+	
+	private Map<Timer, Map<String, Histogram>> histograms;
+	
+	/**
+	 * Creates a registry with all counters at 0.
+	 */
+	public MetricsRegistry() {
+		this.counters=new EnumMap<>(Counter.class);
+		this.histograms=new EnumMap<>(Timer.class);
+		for(Counter cur:Counter.values()) counters.put(cur, new LongAdder());
+		for(Timer cur:Timer.values()) histograms.put(cur, new ConcurrentHashMap<>());
+	}
+	
+	
+	public void count(Counter counter, long amount) {
+		counters.get(counter).add(amount);
+	}
+	
+	public void record(Timer timer, String aspect, long nanos) {
+		histograms.get(timer).computeIfAbsent(aspect, k->new Histogram()).record(nanos);
+	}
+	
+	
+	/**
+	 * @param counter The counter
+	 * @return The current value of the counter
+	 */
+	public long getCount(Counter counter) {
+		return counters.get(counter).sum();
+	}
+	
+	/**
+	 * @param timer The operation
+	 * @param aspect The name of the aspect
+	 * @return The histogram of the latencies or null if nothing was recorded
+	 */
+	public Histogram getHistogram(Timer timer, String aspect) {
+		return histograms.get(timer).get(aspect);
+	}
+	
+	/**
+	 * Sets all counters to 0 and removes all histograms.
+	 */
+	public void reset() {
+		counters.values().forEach(LongAdder::reset);
+		histograms.values().forEach(Map::clear);
+	}
+	
+	/**
+	 * @return All counters and a summary of every histogram, one per line
+	 */
+	public String toString() {
+		StringBuilder ret=new StringBuilder();
+		counters.forEach((counter, value)->ret.append(counter).append(": ").append(value.sum()).append('\n'));
+		histograms.forEach((timer, map)->new TreeMap<>(map).forEach((aspect, histogram)->
+				ret.append(timer).append('[').append(aspect).append("]: ").append(histogram).append('\n')));
+		return ret.toString();
+	}
+	
+	
+	/**
+	 * A histogram of latencies in nanoseconds. Bucket i counts the latencies with i significant bits, so the
+	 * percentiles are accurate up to a factor of 2.
+	 */
+	public static class Histogram {
+		
+		private AtomicLongArray buckets;
+		
+		private LongAdder count, sum;
+		
+		Histogram() {
+			this.buckets=new AtomicLongArray(64);
+			this.count=new LongAdder();
+			this.sum=new LongAdder();
+		}
+		
+		void record(long nanos) {
+			if(nanos<0) nanos=0;
+			buckets.incrementAndGet(64-Long.numberOfLeadingZeros(nanos));
+			count.increment();
+			sum.add(nanos);
+		}
+		
+		/**
+		 * @return The amount of recorded latencies
+		 */
+		public long getCount() {
+			return count.sum();
+		}
+		
+		/**
+		 * @return The average latency in nanoseconds
+		 */
+		public double getMean() {
+			long n=count.sum();
+			return n==0? 0: (double) sum.sum()/n;
+		}
+		
+		/**
+		 * @param quantile A value between 0 and 1, for example 0.99
+		 * @return An upper bound of the latency at the quantile in nanoseconds, it's at most twice as high as the real one
+		 */
+		public long getPercentile(double quantile) {
+			long total=0;
+			for(int i=0; i<64; i++) total+=buckets.get(i);
+			if(total==0) return 0;
+			
+			long rank=(long) Math.ceil(quantile*total), seen=0;
+			for(int i=0; i<64; i++) {
+				seen+=buckets.get(i);
+				if(seen>=Math.max(rank, 1)) return i==0? 0: i==63? Long.MAX_VALUE: (1L<<i)-1;
+			}
+			return Long.MAX_VALUE;
+		}
+		
+		public String toString() {
+			return String.format("count=%d mean=%.0fns p50<=%dns p99<=%dns", getCount(), getMean(), getPercentile(0.5), getPercentile(0.99));
+		}
+	}
+}
@@ -38,6 +38,10 @@ public class Pattern<T> extends BasePattern<T> implements Serializable {
 		defaultCount++;
 	}
 	
+	void setDefaultCount(int defaultCount) {
+		this.defaultCount=defaultCount;
+	}
+	
 	/**
 	 * @return The current state of the counter
 	 */
@@ -0,0 +1,196 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Collects found patterns and counts how often each of them was added, like
+ * {@link PatternSearch#addPatternToList(List, Pattern)} does, but finds an equal pattern through a hash index
+ * instead of comparing it with every collected pattern.<p>
+ * The index is built with a key function that converts an element into a key. Two elements that are equal
+ * under the {@link Comparison} of the patterns must have equal keys, like the keyFunction of an
+ * {@link AspectManager.Aspect}. Without a key function every pattern is compared with all collected patterns.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ * @param <T> The type of elements in the patterns
+ */
+public class PatternAccumulator<T> {
+	
+	private static final Object WILDCARD=new Object();
+	
+	private Function<? super T, ?> keyFunction;
+	
+	private Map<List<Object>, Pattern<T>> index;
+	
+	//patterns that have the same key as an indexed pattern but aren't equal to it
+	private List<Pattern<T>> collisions;
+	
+	//all patterns in the order they were added first, null if the order isn't needed
+	private List<Pattern<T>> order;
+	
+	//shares the elements of every newly added pattern, may be null
+	private PatternInterner<T> interner;
+	
+	/**
+	 * Creates an accumulator that keeps the order in which the patterns were added first.
+	 * 
+	 * @param keyFunction Converts an element into a key that agrees with the {@link Comparison} of the patterns,
+	 * 	null if every pattern should be compared with all collected patterns
+	 */
+	public PatternAccumulator(Function<? super T, ?> keyFunction) {
+		this(keyFunction, true);
+	}
+	
+	/**
+	 * Creates an accumulator.
+	 * 
+	 * @param keyFunction Converts an element into a key that agrees with the {@link Comparison} of the patterns,
+	 * 	null if every pattern should be compared with all collected patterns
+	 * @param ordered If {@link #toList()} should return the patterns in the order they were added first
+	 */
+	public PatternAccumulator(Function<? super T, ?> keyFunction, boolean ordered) {
+		this(keyFunction, ordered, null);
+	}
+	
+	/**
+	 * Creates an accumulator that interns every pattern when it is added first.
+	 * 
+	 * @param keyFunction Converts an element into a key that agrees with the {@link Comparison} of the patterns,
+	 * 	null if every pattern should be compared with all collected patterns
+	 * @param ordered If {@link #toList()} should return the patterns in the order they were added first
+	 * @param interner The {@link PatternInterner} for the elements of the collected patterns or null
+	 */
+	public PatternAccumulator(Function<? super T, ?> keyFunction, boolean ordered, PatternInterner<T> interner) {
+		this.keyFunction=keyFunction;
+		this.index=new HashMap<>();
+		this.collisions=new LinkedList<>();
+		this.order=ordered || keyFunction==null? new ArrayList<>(): null;
+		this.interner=interner;
+	}
+	
+	
+	/**
+	 * Creates an ordered accumulator that uses the equivalence key of the given {@link Comparison}
+	 * or compares every pattern with all collected patterns if it has none.
+	 * 
+	 * @param <T> The type of elements in the patterns
+	 * @param comparison The {@link Comparison} of the patterns
+	 * @return The accumulator
+	 */
+	public static <T> PatternAccumulator<T> of(Comparison<T, T> comparison) {
+		if(comparison.hasEquivalenceKey()) return new PatternAccumulator<>(comparison::equivalenceKey);
+		return new PatternAccumulator<>(null);
+	}
+	
+	/**
+	 * Creates an accumulator like {@link #of(Comparison)} that interns the elements of all collected patterns.
+	 * 
+	 * @param <T> The type of elements in the patterns
+	 * @param comparison The {@link Comparison} of the patterns
+	 * @param interner The {@link PatternInterner} of the comparison
+	 * @return The accumulator
+	 */
+	public static <T> PatternAccumulator<T> of(Comparison<T, T> comparison, PatternInterner<T> interner) {
+		if(comparison.hasEquivalenceKey()) return new PatternAccumulator<>(comparison::equivalenceKey, true, interner);
+		return new PatternAccumulator<>(null, true, interner);
+	}
+	
+	
+	/**
+	 * Adds one count to the pattern that is equal to the given one or adds the given pattern if none is.
+	 * 
+	 * @param toAdd The pattern that will be counted up or added
+	 * @return The collected pattern that represents the given one
+	 */
+	public Pattern<T> add(Pattern<T> toAdd) {
+		Pattern<T> ret=put(toAdd);
+		Metrics metrics=Metrics.get();
+		if(metrics.isEnabled()) metrics.count(ret==toAdd? Metrics.Counter.PATTERNS_EMITTED: Metrics.Counter.PATTERNS_DEDUPLICATED, 1);
+		return ret;
+	}
+	
+	private Pattern<T> put(Pattern<T> toAdd) {
+		if(keyFunction==null) {
+			for(Pattern<T> cur:order) {
+				if(cur.equals(toAdd)) {
+					cur.addDefaultCount();
+					return cur;
+				}
+			}
+			order.add(intern(toAdd));
+			return toAdd;
+		}
+		
+		List<Object> key=createKey(toAdd.getElements());
+		Pattern<T> cur=index.putIfAbsent(key, toAdd);
+		if(cur==null) {
+			if(order!=null) order.add(toAdd);
+			return intern(toAdd);
+		}
+		if(cur.equals(toAdd)) {
+			cur.addDefaultCount();
+			return cur;
+		}
+		
+		for(Pattern<T> col:collisions) {
+			if(col.equals(toAdd)) {
+				col.addDefaultCount();
+				return col;
+			}
+		}
+		collisions.add(intern(toAdd));
+		if(order!=null) order.add(toAdd);
+		return toAdd;
+	}
+	
+	/**
+	 * Adds all given patterns.
+	 * 
+	 * @param patterns The patterns that will be counted up or added
+	 */
+	public void addAll(Collection<Pattern<T>> patterns) {
+		for(Pattern<T> cur:patterns) add(cur);
+	}
+	
+	
+	/**
+	 * @return The amount of different patterns
+	 */
+	public int size() {
+		if(order!=null) return order.size();
+		return index.size()+collisions.size();
+	}
+	
+	
+	/**
+	 * @return All collected patterns
+	 */
+	public List<Pattern<T>> toList() {
+		if(order!=null) return new LinkedList<>(order);
+		List<Pattern<T>> ret=new LinkedList<>(index.values());
+		ret.addAll(collisions);
+		return ret;
+	}
+	
+	
+	private Pattern<T> intern(Pattern<T> toAdd) {
+		return interner==null? toAdd: interner.intern(toAdd);
+	}
+	
+	private List<Object> createKey(List<T> elements) {
+		List<Object> ret=new ArrayList<>(elements.size());
+		for(T cur:elements) ret.add(cur==null? WILDCARD: keyFunction.apply(cur));
+		return ret;
+	}
+}
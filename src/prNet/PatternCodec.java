@@ -0,0 +1,155 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import ext.BlobHandler;
+
+/**
+ * Converts patterns into the blobs that are stored in the table of an {@link AspectManager.Aspect} and back.
+ * A codec is registered with {@link AspectManager#registerCodec(AspectManager.Aspect, PatternCodec)}, aspects
+ * without one use {@link #serializing()}.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ * @param <T> The type of elements in the patterns
+ */
+public interface PatternCodec<T> {
+	
+	/**
+	 * Encodes a pattern, a {@link Pattern} keeps its count.
+	 * 
+	 * @param pattern The pattern
+	 * @return The blob
+	 * @throws IOException
+	 */
+	public byte[] encode(BasePattern<T> pattern) throws IOException;
+	
+	/**
+	 * Decodes a blob that was created by {@link #encode(BasePattern)}.
+	 * 
+	 * @param blob The blob
+	 * @param comparison The {@link Comparison} of the aspect, used by codecs that don't store it
+	 * @return The pattern
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public BasePattern<T> decode(byte[] blob, Comparison<T, T> comparison) throws IOException, ClassNotFoundException;
+	
+	
+	/**
+	 * The codec that stores the whole pattern with Java serialization, including its {@link Comparison}.
+	 * 
+	 * @param <T> The type of elements in the patterns
+	 * @return The codec
+	 */
+	public static <T> PatternCodec<T> serializing() {
+		return new PatternCodec<>() {
+			public byte[] encode(BasePattern<T> pattern) throws IOException {
+				return BlobHandler.serialize(pattern);
+			}
+			
+			public BasePattern<T> decode(byte[] blob, Comparison<T, T> comparison) throws IOException, ClassNotFoundException {
+				return deserialize(blob);
+			}
+		};
+	}
+	
+	/**
+	 * A compact codec that stores only the count and the elements of a pattern. The decoded patterns use the
+	 * given {@link Comparison} of the aspect, blobs that were created with {@link #serializing()} are still read.<p>
+	 * The format is a magic number and a version byte, the count as zigzag varint, the size as varint, a bitmap
+	 * with one bit per position that marks the wildcards and every other element written by the element codec.
+	 * 
+	 * @param <T> The type of elements in the patterns
+	 * @param elementCodec Writes and reads single elements
+	 * @return The codec
+	 */
+	public static <T> PatternCodec<T> binary(ElementCodec<T> elementCodec) {
+		return binary(elementCodec, null);
+	}
+	
+	/**
+	 * The codec of {@link #binary(ElementCodec)} that interns the elements of every decoded pattern, so patterns
+	 * that are read from the database share them with each other and with search results of the same interner.
+	 * 
+	 * @param <T> The type of elements in the patterns
+	 * @param elementCodec Writes and reads single elements
+	 * @param interner The {@link PatternInterner} of the comparison of the aspect or null
+	 * @return The codec
+	 */
+	public static <T> PatternCodec<T> binary(ElementCodec<T> elementCodec, PatternInterner<T> interner) {
+		return new PatternCodec<>() {
+			public byte[] encode(BasePattern<T> pattern) throws IOException {
+				List<T> elements=pattern.getElements();
+				int count=pattern instanceof Pattern? ((Pattern<T>) pattern).getDefaultCount(): 0;
+				
+				ByteArrayOutputStream baos=new ByteArrayOutputStream(8+elements.size()*2);
+				DataOutputStream out=new DataOutputStream(baos);
+				out.writeShort(MAGIC);
+				out.writeByte(VERSION);
+				ElementCodec.writeVarInt(out, (count<<1)^(count>>31));
+				ElementCodec.writeVarInt(out, elements.size());
+				
+				byte[] wildcards=new byte[(elements.size()+7)/8];
+				for(int i=0; i<elements.size(); i++) {
+					if(elements.get(i)==null) wildcards[i/8]|=1<<(i%8);
+				}
+				out.write(wildcards);
+				for(T cur:elements) {
+					if(cur!=null) elementCodec.write(cur, out);
+				}
+				out.close();
+				return baos.toByteArray();
+			}
+			
+			public BasePattern<T> decode(byte[] blob, Comparison<T, T> comparison) throws IOException, ClassNotFoundException {
+				if(blob.length<3 || ((blob[0]&0xFF)<<8|(blob[1]&0xFF))!=MAGIC) return deserialize(blob);
+				if(blob[2]!=VERSION) throw new IOException("Unknown pattern codec version "+blob[2]);
+				
+				DataInputStream in=new DataInputStream(new ByteArrayInputStream(blob, 3, blob.length-3));
+				int raw=ElementCodec.readVarInt(in);
+				int count=(raw>>>1)^-(raw&1);
+				int size=ElementCodec.readVarInt(in);
+				
+				byte[] wildcards=new byte[(size+7)/8];
+				in.readFully(wildcards);
+				List<T> elements=new ArrayList<>(size+1);
+				for(int i=0; i<size; i++) {
+					if((wildcards[i/8]&1<<(i%8))!=0) elements.add(null);
+					else elements.add(elementCodec.read(in));
+				}
+				
+				Pattern<T> ret=new Pattern<>(interner==null? elements: interner.intern(elements), comparison);
+				ret.setDefaultCount(count);
+				return ret;
+			}
+		};
+	}
+	
+	
+	/**
+	 * The first 2 bytes of every binary blob. Java serialization always starts with 0xACED, so both can be told apart.
+	 */
+	static final int MAGIC=0x704E;
+	
+	static final byte VERSION=1;
+	
+	@SuppressWarnings("unchecked")
+	private static <T> BasePattern<T> deserialize(byte[] blob) throws IOException, ClassNotFoundException {
+		try(ObjectInputStream ois=new ObjectInputStream(new ByteArrayInputStream(blob))) {
+			return (BasePattern<T>) ois.readObject();
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Stores the elements of patterns as compact, immutable arrays and shares them between equal patterns.<p>
+ * If the {@link Comparison} has an equivalence key, all patterns with equal keys get the very same list of elements
+ * and equal elements are replaced by the first one that was interned, so every element exists only once. Without
+ * a key the elements are only copied into an array.<p>
+ * The interned lists can't be changed. {@link BasePattern#addNullAsFirst()} and {@link BasePattern#addNullAsLast()}
+ * copy them first, other changes have to be done with {@link BasePattern#setElements(List)}.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ * @param <T> The type of elements in the patterns
+ * @see prNet.PatternAccumulator#of(Comparison, PatternInterner)
+ * @see prNet.PatternCodec#binary(ElementCodec, PatternInterner)
+ */
+public class PatternInterner<T> {
+	
+	private Comparison<T, T> comparison;
+	
+	//the first element of every key
+	private Map<Object, T> elements;
+	
+	//the shared elements of every list of keys
+	private Map<List<Object>, Body<T>> bodies;
+	
+	/**
+	 * Creates an empty interner.
+	 * 
+	 * @param comparison The {@link Comparison} of all patterns that will be interned
+	 */
+	public PatternInterner(Comparison<T, T> comparison) {
+		this.comparison=comparison;
+		this.elements=new HashMap<>();
+		this.bodies=new HashMap<>();
+	}
+	
+	
+	/**
+	 * Returns the shared list that is equal to the given elements under the {@link Comparison} of this interner.
+	 * 
+	 * @param toIntern The elements of a pattern, null is a wildcard
+	 * @return An immutable list with the same elements
+	 */
+	public synchronized List<T> intern(List<T> toIntern) {
+		if(toIntern instanceof Body && !comparison.hasEquivalenceKey()) return toIntern;
+		if(!comparison.hasEquivalenceKey()) return new Body<>(toIntern.toArray());
+		
+		List<Object> keys=KeyIndex.keysOf(toIntern, comparison);
+		Body<T> ret=bodies.get(keys);
+		if(ret!=null) return ret;
+		
+		Object[] array=new Object[keys.size()];
+		int i=0;
+		for(T cur:toIntern) {
+			array[i]=cur==null? null: elements.computeIfAbsent(keys.get(i), k->cur);
+			i++;
+		}
+		ret=new Body<>(array);
+		bodies.put(keys, ret);
+		return ret;
+	}
+	
+	/**
+	 * Replaces the elements of the given pattern with the shared ones.
+	 * 
+	 * @param <P> The type of pattern
+	 * @param pattern A pattern with the {@link Comparison} of this interner
+	 * @return The given pattern
+	 */
+	public <P extends BasePattern<T>> P intern(P pattern) {
+		if(pattern.getComparison()!=comparison) throw new IllegalArgumentException("The pattern has another comparison");
+		List<T> cur=pattern.getElements();
+		List<T> interned=intern(cur);
+		if(interned!=cur) pattern.setElements(interned);
+		return pattern;
+	}
+	
+	
+	/**
+	 * @return The amount of different lists of elements
+	 */
+	public synchronized int countBodies() {
+		return bodies.size();
+	}
+	
+	/**
+	 * @return The amount of different elements
+	 */
+	public synchronized int countElements() {
+		return elements.size();
+	}
+	
+	/**
+	 * Forgets all interned lists and elements, lists that were already returned stay valid.
+	 */
+	public synchronized void clear() {
+		elements.clear();
+		bodies.clear();
+	}
+	
+	
+	/**
+	 * An immutable list that is backed by an array. It's serialized as an {@link ArrayList}, so the blobs of interned
+	 * patterns are the same as the ones of other patterns.
+	 */
+	static final class Body<T> extends AbstractList<T> implements RandomAccess, Serializable {
+		
+		private static final long serialVersionUID=1L;
+		
+		private final Object[] elements;
+		
+		private final int hash;
+		
+		Body(Object[] elements) {
+			this.elements=elements;
+			this.hash=Arrays.hashCode(elements);
+		}
+		
+		@SuppressWarnings("unchecked")
+		public T get(int index) {
+			return (T) elements[index];
+		}
+		
+		public int size() {
+			return elements.length;
+		}
+		
+		public Object[] toArray() {
+			return elements.clone();
+		}
+		
+		public int hashCode() {
+			return hash;
+		}
+		
+		private Object writeReplace() {
+			return new ArrayList<>(this);
+		}
+	}
+}
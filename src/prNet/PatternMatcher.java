@@ -0,0 +1,193 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A pattern that was compiled once to be matched against many lists.<p>
+ * The elements of the pattern are split at every null into literal segments. The first segment has to match at the
+ * beginning of a list and the last one at its end, every segment in between is searched at its leftmost position
+ * after the previous one. This takes at most O(n*m) time for a list of size n and a pattern of size m and, unlike
+ * the recursive matching, doesn't allocate anything for random-access lists.<p>
+ * A null matches zero or more elements but has to be followed by an element. Patterns that end with a null or
+ * contain two nulls in a row never match.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ * @param <T> The type of elements in the pattern
+ * @see prNet.PatternUsage#match(List, BasePattern)
+ */
+public class PatternMatcher<T> {
+	
+	private Object[] elements;
+	
+	//start and end (exclusive) of every literal segment in elements
+	private int[] segmentStarts, segmentEnds;
+	
+	//if the first segment has to match at the beginning of a list
+	private boolean anchored;
+	
+	//if the pattern can match at all
+	private boolean valid;
+	
+	private Comparison<T, T> comparison;
+	
+	/**
+	 * Compiles the given elements of a pattern.
+	 * 
+	 * @param pattern The elements of the pattern, null is treated like a "*" in regex
+	 * @param comparison The {@link Comparison} used to compare an element of a list with an element of the pattern
+	 */
+	public PatternMatcher(List<T> pattern, Comparison<T, T> comparison) {
+		this.comparison=comparison;
+		this.elements=pattern.toArray();
+		this.valid=true;
+		this.anchored=elements.length==0 || elements[0]!=null;
+		
+		List<int[]> segments=new ArrayList<>();
+		int start=anchored? 0: 1;
+		for(int i=start; i<=elements.length; i++) {
+			if(i==elements.length || elements[i]==null) {
+				//an empty segment means two nulls in a row or a null at the end
+				if(i==start && elements.length>0) valid=false;
+				segments.add(new int[] {start, i});
+				start=i+1;
+			}
+		}
+		
+		segmentStarts=new int[segments.size()];
+		segmentEnds=new int[segments.size()];
+		for(int i=0; i<segments.size(); i++) {
+			segmentStarts[i]=segments.get(i)[0];
+			segmentEnds[i]=segments.get(i)[1];
+		}
+	}
+	
+	
+	/**
+	 * Checks if the pattern matches with the given list.
+	 * 
+	 * @param environment The list, it must not contain null
+	 * @return If the pattern matches on the list
+	 */
+	public boolean matches(List<T> environment) {
+		if(!(environment instanceof RandomAccess)) environment=new ArrayList<>(environment);
+		for(int i=0; i<environment.size(); i++) {
+			if(environment.get(i)==null) throw new IllegalArgumentException("Argument cannot be null");
+		}
+		
+		Metrics metrics=Metrics.get();
+		return matchesChecked(environment, metrics.isEnabled()? metrics: null);
+	}
+	
+	/**
+	 * Checks if the pattern matches with the given array.
+	 * 
+	 * @param environment The array, it must not contain null
+	 * @return If the pattern matches on the array
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public final boolean matches(T...environment) {
+		//only viewed as a list, the array is read while matching and never stored
+		return matches(Arrays.asList(environment));
+	}
+	
+	
+	boolean isValid() {
+		return valid;
+	}
+	
+	boolean isAnchored() {
+		return anchored;
+	}
+	
+	int countSegments() {
+		return segmentStarts.length;
+	}
+	
+	/**
+	 * @return The elements of the given literal segment
+	 */
+	@SuppressWarnings("unchecked")
+	List<T> getSegment(int segment) {
+		return (List<T>) Arrays.asList(elements).subList(segmentStarts[segment], segmentEnds[segment]);
+	}
+	
+	
+	//counts the comparisons and the tried positions in locals and reports them if metrics isn't null
+	private boolean matchesChecked(List<T> env, Metrics metrics) {
+		if(!valid) return false;
+		int size=env.size(), last=segmentStarts.length-1;
+		long comparisons=0, branches=0;
+		
+		//without a null the pattern has to match the whole list
+		if(anchored && last==0) {
+			int compared=size==segmentEnds[0]? matchesAt(env, 0, 0): -1;
+			return report(metrics, compared>=0, comparisons+compared(compared), branches);
+		}
+		
+		int pos=0, first=0;
+		if(anchored) {
+			int compared=matchesAt(env, 0, 0);
+			comparisons+=compared(compared);
+			if(compared<0) return report(metrics, false, comparisons, branches);
+			pos=segmentEnds[0];
+			first=1;
+		}
+		
+		for(int s=first; s<last; s++) {
+			//the leftmost position at or after pos where the segment matches
+			int length=segmentEnds[s]-segmentStarts[s], found=-1;
+			for(int i=pos; i<=size-length && found==-1; i++) {
+				int compared=matchesAt(env, s, i);
+				comparisons+=compared(compared);
+				branches++;
+				if(compared>=0) found=i;
+			}
+			if(found==-1) return report(metrics, false, comparisons, branches);
+			pos=found+length;
+		}
+		
+		//the last segment has to end with the list
+		int lastStart=size-(segmentEnds[last]-segmentStarts[last]);
+		int compared=lastStart>=pos? matchesAt(env, last, lastStart): -1;
+		return report(metrics, compared>=0, comparisons+compared(compared), branches);
+	}
+	
+	private static boolean report(Metrics metrics, boolean ret, long comparisons, long branches) {
+		if(metrics!=null) {
+			metrics.count(Metrics.Counter.COMPARISONS, comparisons);
+			metrics.count(Metrics.Counter.MATCH_BRANCHES, branches);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Compares the given segment with the list at the given position.
+	 * 
+	 * @return The amount of compared elements if the segment matches, otherwise the amount of compared elements
+	 * 	as ~amount, which is negative
+	 */
+	@SuppressWarnings("unchecked")
+	private int matchesAt(List<T> env, int segment, int position) {
+		int start=segmentStarts[segment], end=segmentEnds[segment];
+		if(position+end-start>env.size()) return ~0;
+		for(int i=start; i<end; i++) {
+			if(!comparison.compare(env.get(position+i-start), (T) elements[i])) return ~(i-start+1);
+		}
+		return end-start;
+	}
+	
+	//the amount of compared elements of a result of matchesAt
+	private static int compared(int result) {
+		return result<0? ~result: result;
+	}
+}
@@ -5,22 +5,40 @@
  */
 package prNet;
 
+import java.io.Serializable;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Queue;
+import java.util.Set;
 import java.util.Spliterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import prNet.AspectManager.Aspect;
+
 /**
  * This class contains methods to find patterns in multiple or two-dimensional lists.
  * Some methods can be applied on simple two-dimensional lists other on complex data structures like matrices.<p>
  * 
  * This class either can be used like an abstract class or it can be used as an constructed object. It holds all processed
- * calculations in a queue and is accessible through declare, peek and poll methods.
+ * calculations in a queue and is accessible through declare, peek, poll and take methods. The calculations run on an
+ * {@link Executor}, the queue can be bounded so declare waits until there is space again and an optional {@link Sink}
+ * gets every result in the order it was declared, for example to save it with {@link Sink#saving(Statement, Aspect)}.
  * 
  * @author Elija Giesbrecht
  * @see prNet.Pattern
@@ -28,12 +46,61 @@ import java.util.stream.StreamSupport;
  * @see prNet.ArrangeableToList
  * @see prNet.Comparison
  */
-class PatternSearch<T> {
+public class PatternSearch<T> {
 	
-	private Queue<List<Pattern<T>>> occurences;
+	/**
+	 * A stage that gets the result of every declared calculation.
+	 * 
+	 * @param <T> The type of elements
+	 */
+	public static interface Sink<T> {
+		
+		/**
+		 * Processes the result of a calculation. The calls happen one after another in the order the calculations
+		 * were declared, a failed call only fails its own calculation.
+		 * 
+		 * @param author The author that was declared with the input or null
+		 * @param patterns The found patterns
+		 * @throws Exception
+		 */
+		public void accept(String author, List<Pattern<T>> patterns) throws Exception;
+		
+		/**
+		 * Gets the error of a calculation that failed, either the search or {@link #accept(String, List)}. It's called
+		 * in the same order as {@link #accept(String, List)}, the failed calculation isn't kept in the queue. By
+		 * default the stack trace is printed, so the error isn't lost.
+		 * 
+		 * @param author The author that was declared with the input or null
+		 * @param error The error
+		 */
+		public default void failed(String author, Throwable error) {
+			error.printStackTrace();
+		}
+		
+		/**
+		 * Creates a sink that saves every result like {@link PatternUsage#findAndSavePatterns(List, String, Statement, Aspect)}.
+		 * 
+		 * @param <T> The type of elements
+		 * @param stat The {@link Statement} that connects with the database, it is only used by one call at a time
+		 * @param aspect The aspect of the patterns
+		 * @return The sink
+		 */
+		public static <T extends Serializable> Sink<T> saving(Statement stat, Aspect<T> aspect) {
+			return (author, patterns)->PatternUsage.savePatterns(patterns, author, stat, aspect);
+		}
+	}
+	
+	private BlockingQueue<CompletableFuture<List<Pattern<T>>>> occurences;
 	
 	private Comparison<T, T> comparison;
 	
+	private Executor executor;
+	
+	private Sink<T> sink;
+	
+	//the last sink call, every call waits for the one before
+	private CompletableFuture<?> lastSink;
+	
 	/**
 	 * Creates an object that can be used to perform pattern-finding operations
 	 * in a specific order.<p>
@@ -43,18 +110,69 @@ class PatternSearch<T> {
 	 * @param comparisom The {@link Comparison} used to compare 2 elements
 	 */
 	public PatternSearch(Comparison<T, T> comparisom) {
-		this.occurences=new LinkedList<>();
+		this(comparisom, Runnable::run, Integer.MAX_VALUE, null);
+	}
+	
+	/**
+	 * Creates an object that performs the declared pattern-finding operations on the given executor.
+	 * 
+	 * @param comparisom The {@link Comparison} used to compare 2 elements, it has to be thread-safe
+	 * @param executor The {@link Executor} that runs the calculations
+	 * @param capacity The maximum amount of calculations in the queue, declare waits while it is full before the
+	 * 	calculation is started
+	 * @param sink The {@link Sink} that gets every result or null. A calculation leaves the queue as soon as the sink
+	 * 	processed its result or got its error.
+	 */
+	public PatternSearch(Comparison<T, T> comparisom, Executor executor, int capacity, Sink<T> sink) {
+		this.occurences=new LinkedBlockingQueue<>(capacity);
 		this.comparison=comparisom;
+		this.executor=executor;
+		this.sink=sink;
+		this.lastSink=CompletableFuture.completedFuture(null);
 	}
 	
 	
+	/**
+	 * @return The result of the oldest calculation, it is waited for if necessary, or null if the queue is empty
+	 */
 	public List<Pattern<T>> peek() {
-		return occurences.peek();
+		CompletableFuture<List<Pattern<T>>> ret=occurences.peek();
+		return ret==null? null: join(ret);
 	}
 	
 	
+	/**
+	 * Removes the oldest calculation from the queue.
+	 * 
+	 * @return Its result, it is waited for if necessary, or null if the queue is empty
+	 */
 	public List<Pattern<T>> poll() {
-		return occurences.poll();
+		CompletableFuture<List<Pattern<T>>> ret=occurences.poll();
+		return ret==null? null: join(ret);
+	}
+	
+	/**
+	 * Removes the oldest calculation from the queue and waits until one was declared if it's empty.
+	 * 
+	 * @return The result of the calculation
+	 * @throws InterruptedException
+	 */
+	public List<Pattern<T>> take() throws InterruptedException {
+		return join(occurences.take());
+	}
+	
+	/**
+	 * Waits for all calculations in the queue and removes them, failed ones are ignored.
+	 */
+	public void drain() {
+		CompletableFuture<List<Pattern<T>>> cur;
+		while((cur=occurences.poll())!=null) {
+			try {
+				cur.join();
+			}catch(CompletionException | CancellationException e) {
+				//the failure only concerns the result that is dropped anyway
+			}
+		}
 	}
 	
 	
@@ -64,25 +182,81 @@ class PatternSearch<T> {
 	
 	
 	public void declare(List<List<T>> input) {
-		occurences.add(findPatterns(comparison, input));
+		declare(null, input);
+	}
+	
+	/**
+	 * Declares a calculation whose result is given to the sink together with the author.
+	 * 
+	 * @param author The author of the input
+	 * @param input The 2-dimensional list of all analyzeable elements
+	 */
+	public void declare(String author, List<List<T>> input) {
+		submit(author, ()->findPatterns(comparison, input));
 	}
 	
 	@SuppressWarnings("unchecked")
 	public void declare(List<T>...input) {
-		occurences.add(findPatterns(comparison, Arrays.stream(input)
+		List<List<T>> finInput=Arrays.stream(input)
 				.map(Objects::requireNonNull)
-				.collect(Collectors.toList())));
+				.collect(Collectors.toList());
+		submit(null, ()->findPatterns(comparison, finInput));
 	}
 	
 	@SuppressWarnings("unchecked")
 	public void declare(ArrangeableToList<T>...input) {
-		occurences.add(findPatterns(comparison, input));
+		submit(null, ()->findPatterns(comparison, input));
 	}
 	
 	
 	@SuppressWarnings("unchecked")
 	<S extends Spliterator<T>> void declare(S...input) {
-		occurences.add(findPatterns(comparison, input));
+		submit(null, ()->findPatterns(comparison, input));
+	}
+	
+	
+	//synchronized, so concurrent declarations are chained and queued in the same order
+	private synchronized void submit(String author, Supplier<List<Pattern<T>>> search) {
+		//the place in the queue is taken before the search starts, so a full queue also limits the running searches
+		CompletableFuture<List<Pattern<T>>> ret=new CompletableFuture<>();
+		try {
+			occurences.put(ret);
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for space in the queue", e);
+		}
+		
+		CompletableFuture<List<Pattern<T>>> found=CompletableFuture.supplyAsync(search, executor);
+		if(sink==null) {
+			found.whenComplete((patterns, e)->{
+				if(e==null) {
+					ret.complete(patterns);
+				}else {
+					ret.completeExceptionally(e);
+				}
+			});
+			return;
+		}
+		
+		lastSink=lastSink.handle((v, e)->null).thenCompose(v->found.handle((patterns, e)->{
+			Throwable error=e instanceof CompletionException && e.getCause()!=null? e.getCause(): e;
+			if(error==null) {
+				try {
+					sink.accept(author, patterns);
+				}catch(Exception x) {
+					error=x;
+				}
+			}
+			//the sink already got the result or the error, so it would only fill the queue
+			occurences.remove(ret);
+			if(error==null) {
+				ret.complete(patterns);
+			}else {
+				ret.completeExceptionally(error);
+				sink.failed(author, error);
+			}
+			return null;
+		}));
 	}
 	
 	
@@ -137,13 +311,262 @@ class PatternSearch<T> {
 	 * @return All found patterns
 	 */
 	static <T> List<Pattern<T>> findPatterns(Comparison<T, T> comparison, List<List<T>> input) {
-		List<Pattern<T>> ret=new LinkedList<>();
-		for(int i=0; i<input.size(); i++) {
-			List<T> currentItem=new LinkedList<>(input.get(i));
-			List<List<T>> currentRest=new LinkedList<>(input);
-			currentRest.remove(i);
-			castToPatterns(findPatternsInOrder(currentItem, currentRest, comparison), comparison).forEach(arg->addPatternToList(ret, arg));
+		return findPatterns(comparison, input, SearchMode.LINKED);
+	}
+	
+	
+	/**
+	 * This method finds all patterns in the given list with the comparison-function.
+	 * 
+	 * @param <T> The type of elements
+	 * @param input The 2-dimensional list of all analyzeable elements
+	 * @param comparison The lambda expression that will be used to compare 2 elements
+	 * @param mode The {@link SearchMode} used to compare two lists
+	 * @return All found patterns
+	 */
+	static <T> List<Pattern<T>> findPatterns(Comparison<T, T> comparison, List<List<T>> input, SearchMode mode) {
+		return findPatterns(comparison, input, mode, PatternAccumulator.of(comparison));
+	}
+	
+	
+	/**
+	 * This method finds all patterns in the given list with the comparison-function and collects them in the given
+	 * {@link PatternAccumulator}.
+	 * 
+	 * @param <T> The type of elements
+	 * @param input The 2-dimensional list of all analyzeable elements
+	 * @param comparison The lambda expression that will be used to compare 2 elements
+	 * @param mode The {@link SearchMode} used to compare two lists
+	 * @param accumulator The {@link PatternAccumulator} that counts the found patterns
+	 * @return All patterns of the accumulator
+	 */
+	static <T> List<Pattern<T>> findPatterns(Comparison<T, T> comparison, List<List<T>> input, SearchMode mode, PatternAccumulator<T> accumulator) {
+		return findPatterns(comparison, input, mode, accumulator, SearchLimits.NONE);
+	}
+	
+	/**
+	 * Does the same as {@link #findPatterns(Comparison, List, SearchMode, PatternAccumulator)} but only finds
+	 * patterns within the given limits. {@link SearchMode#LINKED} uses {@link SearchMode#INDEXED} if the limits
+	 * restrict the search.
+	 * 
+	 * @param <T> The type of elements
+	 * @param input The 2-dimensional list of all analyzeable elements
+	 * @param comparison The lambda expression that will be used to compare 2 elements
+	 * @param mode The {@link SearchMode} used to compare two lists
+	 * @param accumulator The {@link PatternAccumulator} that counts the found patterns
+	 * @param limits The {@link SearchLimits} of the patterns
+	 * @return All patterns of the accumulator that are within the limits
+	 */
+	static <T> List<Pattern<T>> findPatterns(Comparison<T, T> comparison, List<List<T>> input, SearchMode mode, PatternAccumulator<T> accumulator, SearchLimits limits) {
+		//the elements are compared through the counting comparison, the patterns keep the given one
+		Metrics metrics=Metrics.get();
+		Comparison<T, T> compare=Metrics.counting(metrics, comparison);
+		
+		if((mode==SearchMode.SUFFIX_ARRAY || mode==SearchMode.MAXIMAL_MATCHES) && compare.hasEquivalenceKey()) {
+			SuffixIndex<T> index=new SuffixIndex<>(toRandomAccess(input), compare);
+			for(int i=0; i<input.size(); i++) {
+				List<List<T>> found=mode==SearchMode.SUFFIX_ARRAY? index.findPatterns(i, limits): index.findMaximalMatches(i, limits);
+				castToPatterns(found, comparison).forEach(accumulator::add);
+			}
+		}else if(mode!=SearchMode.LINKED || !limits.isUnlimited()) {
+			List<List<T>> arrays=toRandomAccess(input);
+			for(int i=0; i<arrays.size(); i++) {
+				castToPatterns(findPatternsInOrderIndexed(arrays, i, compare, limits), comparison).forEach(accumulator::add);
+			}
+		}else {
+			for(int i=0; i<input.size(); i++) {
+				List<T> currentItem=new LinkedList<>(input.get(i));
+				List<List<T>> currentRest=new LinkedList<>(input);
+				currentRest.remove(i);
+				castToPatterns(findPatternsInOrder(currentItem, currentRest, compare), comparison).forEach(accumulator::add);
+			}
+		}
+		
+		report(metrics, compare, input.size());
+		return limits.supported(accumulator.toList());
+	}
+	
+	
+	/**
+	 * This method finds all patterns in the given list with the comparison-function. Every pair of two inputs is
+	 * compared as an own task on the given executor, the results are merged afterwards in the same order as
+	 * {@link #findPatterns(Comparison, List)} does, so the result doesn't depend on the executor.
+	 * 
+	 * @param <T> The type of elements
+	 * @param comparison The lambda expression that will be used to compare 2 elements, it has to be thread-safe
+	 * @param input The 2-dimensional list of all analyzeable elements
+	 * @param executor The {@link Executor} that runs the comparisons of all pairs
+	 * @return All found patterns
+	 */
+	static <T> List<Pattern<T>> findPatternsParallel(Comparison<T, T> comparison, List<List<T>> input, Executor executor) {
+		return findPatternsParallel(comparison, input, executor, PatternAccumulator.of(comparison));
+	}
+	
+	
+	/**
+	 * Does the same as {@link #findPatternsParallel(Comparison, List, Executor)} but collects the patterns in the
+	 * given {@link PatternAccumulator}.
+	 * 
+	 * @param <T> The type of elements
+	 * @param comparison The lambda expression that will be used to compare 2 elements, it has to be thread-safe
+	 * @param input The 2-dimensional list of all analyzeable elements
+	 * @param executor The {@link Executor} that runs the comparisons of all pairs
+	 * @param accumulator The {@link PatternAccumulator} that counts the found patterns
+	 * @return All patterns of the accumulator
+	 */
+	static <T> List<Pattern<T>> findPatternsParallel(Comparison<T, T> comparison, List<List<T>> input, Executor executor, PatternAccumulator<T> accumulator) {
+		List<List<T>> arrays=toRandomAccess(input);
+		int size=arrays.size();
+		Metrics metrics=Metrics.get();
+		
+		//one task per ordered pair (i, j) with i!=j, stored in the order they are merged later
+		List<CompletableFuture<List<List<T>>>> pairs=new ArrayList<>(size*Math.max(size-1, 0));
+		for(int i=0; i<size; i++) {
+			KeyIndex<T> index1=new KeyIndex<>(arrays.get(i), comparison);
+			for(int j=0; j<size; j++) {
+				if(j==i) continue;
+				List<T> list2=arrays.get(j);
+				pairs.add(CompletableFuture.supplyAsync(()->findPatternsInPair(index1, list2, comparison, SearchLimits.NONE, metrics), executor));
+			}
+		}
+		
+		Comparison<T, T> compare=Metrics.counting(metrics, comparison);
+		int next=0;
+		for(int i=0; i<size; i++) {
+			List<List<T>> globret=new LinkedList<>();
+			Set<List<Object>> seen=comparison.hasEquivalenceKey()? new HashSet<>(): null;
+			for(int j=0; j<size-1; j++) {
+				for(List<T> arg:join(pairs.get(next++))) addDistinct(globret, seen, arg, compare);
+			}
+			castToPatterns(globret, comparison).forEach(accumulator::add);
 		}
+		
+		report(metrics, compare, size);
+		return accumulator.toList();
+	}
+	
+	
+	/**
+	 * Finds all patterns in the given list under several aspects at once. The input is copied only once and every
+	 * pair of two inputs is one task that is compared under all aspects, so the index of a list is built once per
+	 * aspect and reused for all pairs. The result of every aspect is the same as
+	 * {@link #findPatterns(Comparison, List, SearchMode, PatternAccumulator, SearchLimits)} with its comparison and
+	 * {@link AspectManager#getLimits(Aspect) limits}.<p>
+	 * The pairs of all aspects run together, so the {@link Metrics.Timer#SEARCH} latency of an aspect is the time
+	 * that was spent on its comparisons and its merging, summed over all tasks.
+	 * 
+	 * @param <T> The type of elements
+	 * @param aspects The aspects, their comparisons have to be thread-safe if the executor uses other threads
+	 * @param input The 2-dimensional list of all analyzeable elements
+	 * @param executor The {@link Executor} that runs the comparisons of all pairs
+	 * @return All found patterns of every aspect in the order of the aspects
+	 * @throws IllegalArgumentException If an aspect is given more than once, its results would share one entry
+	 */
+	static <T> Map<Aspect<T>, List<Pattern<T>>> findPatterns(List<Aspect<T>> aspects, List<List<T>> input, Executor executor) {
+		if(new HashSet<>(aspects).size()!=aspects.size()) throw new IllegalArgumentException("An aspect is given more than once: "+aspects);
+		List<List<T>> arrays=toRandomAccess(input);
+		int size=arrays.size(), count=aspects.size();
+		Metrics metrics=Metrics.get();
+		//the merging of every aspect counts its comparisons, the tasks count their own
+		List<Comparison<T, T>> compares=new ArrayList<>(count);
+		List<SearchLimits> limits=new ArrayList<>(count);
+		for(Aspect<T> aspect:aspects) {
+			compares.add(Metrics.counting(metrics, aspect.comparison()));
+			limits.add(AspectManager.getLimits(aspect));
+		}
+		
+		AtomicLongArray nanos=new AtomicLongArray(count);
+		
+		//one task per ordered pair (i, j) with i!=j, every task returns the element lists of all aspects
+		List<CompletableFuture<List<List<List<T>>>>> pairs=new ArrayList<>(size*Math.max(size-1, 0));
+		for(int i=0; i<size; i++) {
+			List<KeyIndex<T>> indexes=new ArrayList<>(count);
+			for(Aspect<T> aspect:aspects) indexes.add(new KeyIndex<>(arrays.get(i), aspect.comparison()));
+			for(int j=0; j<size; j++) {
+				if(j==i) continue;
+				List<T> list2=arrays.get(j);
+				pairs.add(CompletableFuture.supplyAsync(()->{
+					List<List<List<T>>> ret=new ArrayList<>(count);
+					for(int a=0; a<count; a++) {
+						long start=metrics.start();
+						ret.add(findPatternsInPair(indexes.get(a), list2, aspects.get(a).comparison(), limits.get(a), metrics));
+						if(metrics.isEnabled()) nanos.addAndGet(a, System.nanoTime()-start);
+					}
+					return ret;
+				}, executor));
+			}
+		}
+		
+		List<PatternAccumulator<T>> accumulators=new ArrayList<>(count);
+		for(Aspect<T> aspect:aspects) accumulators.add(PatternAccumulator.of(aspect.comparison()));
+		
+		int next=0;
+		for(int i=0; i<size; i++) {
+			List<List<List<T>>> globrets=new ArrayList<>(count);
+			List<Set<List<Object>>> seen=new ArrayList<>(count);
+			for(Aspect<T> aspect:aspects) {
+				globrets.add(new LinkedList<>());
+				seen.add(aspect.comparison().hasEquivalenceKey()? new HashSet<>(): null);
+			}
+			for(int j=0; j<size-1; j++) {
+				List<List<List<T>>> cur=join(pairs.get(next++));
+				for(int a=0; a<count; a++) {
+					long start=metrics.start();
+					for(List<T> arg:cur.get(a)) addDistinct(globrets.get(a), seen.get(a), arg, compares.get(a));
+					if(metrics.isEnabled()) nanos.addAndGet(a, System.nanoTime()-start);
+				}
+			}
+			for(int a=0; a<count; a++) {
+				long start=metrics.start();
+				castToPatterns(globrets.get(a), aspects.get(a).comparison()).forEach(accumulators.get(a)::add);
+				if(metrics.isEnabled()) nanos.addAndGet(a, System.nanoTime()-start);
+			}
+		}
+		
+		if(metrics.isEnabled()) {
+			for(Comparison<T, T> compare:compares) Metrics.report(metrics, compare);
+			metrics.count(Metrics.Counter.PAIRS_COMPARED, (long) size*Math.max(size-1, 0));
+			for(int a=0; a<count; a++) metrics.record(Metrics.Timer.SEARCH, aspects.get(a).name(), nanos.get(a));
+		}
+		
+		Map<Aspect<T>, List<Pattern<T>>> ret=new LinkedHashMap<>();
+		for(int a=0; a<count; a++) ret.put(aspects.get(a), limits.get(a).supported(accumulators.get(a).toList()));
+		return ret;
+	}
+	
+	
+	//reports the comparisons and pairs of one search over the given amount of inputs
+	private static <T> void report(Metrics metrics, Comparison<T, T> compare, int size) {
+		if(!metrics.isEnabled()) return;
+		Metrics.report(metrics, compare);
+		metrics.count(Metrics.Counter.PAIRS_COMPARED, (long) size*Math.max(size-1, 0));
+	}
+	
+	
+	/**
+	 * Waits for the given future and rethrows the original exception if it failed.
+	 */
+	static <R> R join(CompletableFuture<R> future) {
+		try {
+			return future.join();
+		}catch(CompletionException e) {
+			if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			if(e.getCause() instanceof Error) throw (Error) e.getCause();
+			throw e;
+		}
+	}
+	
+	
+	/**
+	 * Copies every list of the input once into an {@link ArrayList} so it can be accessed by index in constant time.
+	 * 
+	 * @param <T> The type of elements
+	 * @param input The 2-dimensional list of all analyzeable elements
+	 * @return The same lists backed by arrays
+	 */
+	static <T> List<List<T>> toRandomAccess(List<List<T>> input) {
+		List<List<T>> ret=new ArrayList<>(input.size());
+		for(List<T> cur:input) ret.add(new ArrayList<>(cur));
 		return ret;
 	}
 	
@@ -240,6 +663,158 @@ class PatternSearch<T> {
 	}
 	
 	
+	/**
+	 * Does the same as {@link #findPatternsInOrder(List, List, Comparison)} but works on random-access lists.
+	 * Instead of copying and shrinking the first list for every suffix of the second one, a cursor is moved over it.
+	 * 
+	 * @param <T> The type of elements in the lists
+	 * @param arrays All inputs, each of them should be a random-access list
+	 * @param index The position of the list in arrays that is compared with all others
+	 * @param comparison The {@link Comparison} used to check if 2 elements of the type T are equal
+	 * @return All found element lists in the same order as {@link #findPatternsInOrder(List, List, Comparison)}
+	 */
+	static <T> List<List<T>> findPatternsInOrderIndexed(List<List<T>> arrays, int index, Comparison<T, T> comparison) {
+		return findPatternsInOrderIndexed(arrays, index, comparison, SearchLimits.NONE);
+	}
+	
+	/**
+	 * Does the same as {@link #findPatternsInOrderIndexed(List, int, Comparison)} but only finds element lists
+	 * within the given limits.
+	 * 
+	 * @param <T> The type of elements in the lists
+	 * @param arrays All inputs, each of them should be a random-access list
+	 * @param index The position of the list in arrays that is compared with all others
+	 * @param comparison The {@link Comparison} used to check if 2 elements of the type T are equal
+	 * @param limits The {@link SearchLimits} of the element lists
+	 * @return All found element lists
+	 */
+	static <T> List<List<T>> findPatternsInOrderIndexed(List<List<T>> arrays, int index, Comparison<T, T> comparison, SearchLimits limits) {
+		List<List<T>> globret=new LinkedList<>();
+		Set<List<Object>> seen=comparison.hasEquivalenceKey()? new HashSet<>(): null;
+		KeyIndex<T> index1=new KeyIndex<>(arrays.get(index), comparison);
+		for(int j=0; j<arrays.size(); j++) {
+			if(j==index) continue;
+			for(List<T> arg:findPatternsInPair(index1, arrays.get(j), comparison, limits)) addDistinct(globret, seen, arg, comparison);
+		}
+		return globret;
+	}
+	
+	
+	/**
+	 * Adds the item to the list if no equal item is contained yet.
+	 * 
+	 * @param <T> The type of elements in the lists
+	 * @param list The list of distinct items
+	 * @param seen The equivalence keys of all items in the list or null if the comparison has no key
+	 * @param item The item that will be added
+	 * @param comparison The {@link Comparison} used to check if 2 elements of the type T are equal
+	 */
+	private static <T> void addDistinct(List<List<T>> list, Set<List<Object>> seen, List<T> item, Comparison<T, T> comparison) {
+		if(seen==null) {
+			if(!contains(list, item, comparison)) list.add(item);
+		}else if(seen.add(KeyIndex.keysOf(item, comparison))) {
+			list.add(item);
+		}
+	}
+	
+	
+	/**
+	 * Finds all patterns of two random-access lists. For every suffix of list2 all of its elements are searched
+	 * in list1 in chronological order, elements that can't be found are replaced by a single null.
+	 * 
+	 * If the comparison has an equivalence key, list1 is searched through its {@link KeyIndex}.
+	 * 
+	 * @param <T> The type of elements in the lists
+	 * @param list1 The index of the list in which the elements are searched
+	 * @param list2 The list whose suffixes are searched
+	 * @param comparison The {@link Comparison} used to check if 2 elements of the type T are equal
+	 * @return All element lists of this pair
+	 */
+	static <T> List<List<T>> findPatternsInPair(KeyIndex<T> list1, List<T> list2, Comparison<T, T> comparison) {
+		return findPatternsInPair(list1, list2, comparison, SearchLimits.NONE);
+	}
+	
+	/**
+	 * Does the same as {@link #findPatternsInPair(KeyIndex, List, Comparison)} but stops following a suffix as soon
+	 * as it reaches the maximum length or gap of the limits or can't reach the minimum of literals anymore.
+	 * Element lists with too few literals are skipped.
+	 * 
+	 * @param <T> The type of elements in the lists
+	 * @param list1 The index of the list in which the elements are searched
+	 * @param list2 The list whose suffixes are searched
+	 * @param comparison The {@link Comparison} used to check if 2 elements of the type T are equal
+	 * @param limits The {@link SearchLimits} of the element lists
+	 * @return All element lists of this pair that are within the limits
+	 */
+	static <T> List<List<T>> findPatternsInPair(KeyIndex<T> list1, List<T> list2, Comparison<T, T> comparison, SearchLimits limits) {
+		List<List<T>> ret=new ArrayList<>();
+		//the key sets of the lists in ret by every key they contain, null if the comparison has no key
+		Map<Object, List<Set<Object>>> retKeys=list1.isHashed()? new HashMap<>(): null;
+		int size1=list1.size(), size2=list2.size();
+		int minLiterals=limits.minLiterals(), maxLength=limits.maxLength(), maxGap=limits.maxGap();
+		//a shorter suffix can't contain enough literals
+		for(int start=0; start<size2 && size2-start>=minLiterals; start++) {
+			List<T> tempret=new ArrayList<>();
+			int cursor=0, literals=0, gap=0;
+			for(int k=start; k<size2 && tempret.size()<maxLength && literals+size2-k>=minLiterals; k++) {
+				if(cursor>=size1) {
+					//nothing left to find, the rest would only be collapsed into one null
+					if(tempret.size()>0 && tempret.get(tempret.size()-1)!=null) tempret.add(null);
+					break;
+				}
+				int pos=list1.indexOf(list2.get(k), cursor);
+				if(pos==-1) {
+					if(tempret.size()>0 && tempret.get(tempret.size()-1)!=null) tempret.add(null);
+					//the wildcard would stand for too many elements
+					if(tempret.size()>0 && ++gap>maxGap) break;
+				}else {
+					T found=list1.get(pos);
+					tempret.add(found);
+					if(found!=null) literals++;
+					cursor=pos+1;
+					gap=0;
+				}
+			}
+			if(literals<minLiterals) continue;
+			if(retKeys==null) {
+				if(!containsItem(ret, tempret, comparison)) ret.add(tempret);
+			}else {
+				List<Object> keys=KeyIndex.keysOf(tempret, comparison);
+				if(keys.isEmpty()? ret.isEmpty(): !containsItem(retKeys.get(keys.get(0)), keys)) {
+					ret.add(tempret);
+					Set<Object> set=new HashSet<>(keys);
+					for(Object key:set) retKeys.computeIfAbsent(key, k->new ArrayList<>()).add(set);
+				}
+			}
+		}
+		return ret;
+	}
+	
+	
+	/**
+	 * Does the same as {@link #findPatternsInPair(KeyIndex, List, Comparison, SearchLimits)} as one task of a search.
+	 * The task counts its own comparisons and reports them once to the given metrics.
+	 * 
+	 * @param <T> The type of elements in the lists
+	 * @param list1 The index of the list in which the elements are searched
+	 * @param list2 The list whose suffixes are searched
+	 * @param comparison The {@link Comparison} used to check if 2 elements of the type T are equal
+	 * @param limits The {@link SearchLimits} of the element lists
+	 * @param metrics The installed {@link Metrics}
+	 * @return All element lists of this pair that are within the limits
+	 */
+	static <T> List<List<T>> findPatternsInPair(KeyIndex<T> list1, List<T> list2, Comparison<T, T> comparison, SearchLimits limits, Metrics metrics) {
+		Comparison<T, T> compare=Metrics.counting(metrics, comparison);
+		if(compare==comparison) return findPatternsInPair(list1, list2, comparison, limits);
+		
+		//without an equivalence key the index scans its list with its comparison, so it's recreated with the counting one
+		KeyIndex<T> index=comparison.hasEquivalenceKey()? list1: new KeyIndex<>(list1.getList(), compare);
+		List<List<T>> ret=findPatternsInPair(index, list2, compare, limits);
+		Metrics.report(metrics, compare);
+		return ret;
+	}
+	
+	
 	static <T> List<Pattern<T>> castToPatterns(List<List<T>> list, Comparison<T, T> comparison) {
 		List<Pattern<T>> ret=new LinkedList<>();
 		for(List<T> cur:list) ret.add(new Pattern<T>(cur, comparison));
@@ -254,6 +829,13 @@ class PatternSearch<T> {
 		return -1;
 	}
 	
+	static <T> int indexOf(List<T> list, T item, int from, Comparison<T, T> lambda) {
+		for(int i=from; i<list.size(); i++) {
+			if(lambda.compare(list.get(i), item)) return i;
+		}
+		return -1;
+	}
+	
 	
 	static <T> List<Integer> allIndicesOf(List<T> list, T toFind, Comparison<T, T> com) {
 		List<Integer> ret=new ArrayList<>();
@@ -268,7 +850,7 @@ class PatternSearch<T> {
 	}
 	
 	
-	private static <T> boolean contains(List<List<T>> tl, List<T> ol, Comparison<T, T> lambda) {
+	static <T> boolean contains(List<List<T>> tl, List<T> ol, Comparison<T, T> lambda) {
 		for(List<T> arg:tl) {
 			if(equals(arg, ol, lambda)) return true;
 		}
@@ -293,6 +875,14 @@ class PatternSearch<T> {
 	}
 	
 	
+	//only the key sets that contain the first key are passed, null if there are none
+	private static boolean containsItem(List<Set<Object>> keys, List<Object> itemKeys) {
+		if(keys==null) return false;
+		for(Set<Object> a:keys) {if(a.containsAll(itemKeys)) return true;}
+		return false;
+	}
+	
+	
 	public static <T> boolean containsAll(List<T> list, List<T> toInclude, Comparison<T, T> lambda) {
 		for(T con:toInclude) {
 			if(!contains(list, con, lambda)) return false;
@@ -0,0 +1,315 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.RandomAccess;
+
+/**
+ * A set of patterns that can be matched against a list all at once.<p>
+ * Every pattern is split into its literal segments like in {@link PatternMatcher}. The segments of all patterns
+ * that share a {@link Comparison} with an equivalence key are put into one Aho-Corasick automaton, so a single
+ * pass over a list finds every occurrence of every segment. Afterwards only the patterns whose segments all
+ * occurred are checked, which is done with the recorded positions instead of comparing elements again.<p>
+ * Patterns whose comparison has no equivalence key are matched one after another.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ * @param <T> The type of elements in the patterns
+ * @see prNet.Comparison#keyed(Comparison, Comparison.Key)
+ */
+public class PatternSet<T> {
+	
+	private List<BasePattern<T>> patterns;
+	
+	private List<Automaton<T>> automata;
+	
+	//positions in patterns of all patterns without an equivalence key
+	private List<Integer> unkeyed;
+	
+	/**
+	 * Creates a set of the given patterns.
+	 * 
+	 * @param patterns The patterns, they are matched in this order
+	 */
+	public PatternSet(Collection<? extends BasePattern<T>> patterns) {
+		this.patterns=new ArrayList<>(patterns);
+		this.automata=new ArrayList<>();
+		this.unkeyed=new ArrayList<>();
+		
+		Map<Comparison<T, T>, Automaton<T>> byComparison=new IdentityHashMap<>();
+		for(int i=0; i<this.patterns.size(); i++) {
+			BasePattern<T> cur=this.patterns.get(i);
+			Comparison<T, T> com=cur.getComparison();
+			if(!com.hasEquivalenceKey()) {
+				unkeyed.add(i);
+				continue;
+			}
+			Automaton<T> aut=byComparison.get(com);
+			if(aut==null) {
+				aut=new Automaton<>(com);
+				byComparison.put(com, aut);
+				automata.add(aut);
+			}
+			aut.add(i, cur.matcher());
+		}
+		for(Automaton<T> aut:automata) aut.build();
+	}
+	
+	
+	/**
+	 * @return The amount of patterns in this set
+	 */
+	public int size() {
+		return patterns.size();
+	}
+	
+	
+	/**
+	 * Finds all patterns of this set that match with the given list.
+	 * 
+	 * @param environment The list, it must not contain null
+	 * @return All matching patterns in the order they were given to this set
+	 */
+	public List<BasePattern<T>> match(List<T> environment) {
+		if(!(environment instanceof RandomAccess)) environment=new ArrayList<>(environment);
+		for(int i=0; i<environment.size(); i++) {
+			if(environment.get(i)==null) throw new IllegalArgumentException("Argument cannot be null");
+		}
+		
+		boolean[] matching=new boolean[patterns.size()];
+		for(Automaton<T> aut:automata) aut.match(environment, matching);
+		for(int i:unkeyed) {
+			if(patterns.get(i).match(environment)) matching[i]=true;
+		}
+		
+		List<BasePattern<T>> ret=new ArrayList<>();
+		for(int i=0; i<matching.length; i++) {
+			if(matching[i]) ret.add(patterns.get(i));
+		}
+		return ret;
+	}
+	
+	
+	/**
+	 * The automaton of all patterns that share one {@link Comparison}.
+	 */
+	private static class Automaton<T> {
+		
+		private Comparison<T, T> comparison;
+		
+		//---the trie---
+		private List<Map<Object, Integer>> children=new ArrayList<>();
+		private int[] fail;
+		//the segment that ends in a node or -1
+		private int[] segmentOf;
+		//the next node on the fail path that ends a segment or -1
+		private int[] outputLink;
+		//--------------
+		
+		//keys of every distinct segment and its id
+		private Map<List<Object>, Integer> segmentIds=new HashMap<>();
+		private List<Integer> segmentLengths=new ArrayList<>();
+		//positions of all patterns that contain a segment
+		private List<List<Integer>> patternsOfSegment=new ArrayList<>();
+		
+		//---per pattern in this automaton---
+		private List<Integer> positions=new ArrayList<>();
+		private List<int[]> segmentsOfPattern=new ArrayList<>();
+		private List<Boolean> anchoredPatterns=new ArrayList<>();
+		//amount of distinct segments of every pattern
+		private List<Integer> distinctSegments=new ArrayList<>();
+		//patterns that only match an empty list
+		private List<Integer> emptyPatterns=new ArrayList<>();
+		//-----------------------------------
+		
+		//nodes that end a segment and the segment, only needed until the automaton is built
+		private List<Integer> pendingEnds=new ArrayList<>();
+		private List<Integer> pendingSegments=new ArrayList<>();
+		
+		Automaton(Comparison<T, T> comparison) {
+			this.comparison=comparison;
+			children.add(new HashMap<>());
+		}
+		
+		void add(int position, PatternMatcher<T> matcher) {
+			if(!matcher.isValid()) return;
+			if(matcher.countSegments()==1 && matcher.isAnchored() && matcher.getSegment(0).isEmpty()) {
+				emptyPatterns.add(position);
+				return;
+			}
+			
+			int local=positions.size();
+			int[] segs=new int[matcher.countSegments()];
+			int distinct=0;
+			for(int s=0; s<segs.length; s++) {
+				List<Object> keys=KeyIndex.keysOf(matcher.getSegment(s), comparison);
+				Integer id=segmentIds.get(keys);
+				if(id==null) {
+					id=segmentIds.size();
+					segmentIds.put(keys, id);
+					segmentLengths.add(keys.size());
+					patternsOfSegment.add(new ArrayList<>());
+					insert(keys, id);
+				}
+				List<Integer> users=patternsOfSegment.get(id);
+				if(users.isEmpty() || users.get(users.size()-1)!=local) {
+					users.add(local);
+					distinct++;
+				}
+				segs[s]=id;
+			}
+			
+			positions.add(position);
+			segmentsOfPattern.add(segs);
+			anchoredPatterns.add(matcher.isAnchored());
+			distinctSegments.add(distinct);
+		}
+		
+		private void insert(List<Object> keys, int id) {
+			int node=0;
+			for(Object key:keys) {
+				Integer next=children.get(node).get(key);
+				if(next==null) {
+					next=children.size();
+					children.add(new HashMap<>());
+					children.get(node).put(key, next);
+				}
+				node=next;
+			}
+			pendingEnds.add(node);
+			pendingSegments.add(id);
+		}
+		
+		/**
+		 * Calculates the fail and output links after all patterns were added.
+		 */
+		void build() {
+			int size=children.size();
+			fail=new int[size];
+			segmentOf=new int[size];
+			outputLink=new int[size];
+			Arrays.fill(segmentOf, -1);
+			Arrays.fill(outputLink, -1);
+			for(int i=0; i<pendingEnds.size(); i++) segmentOf[pendingEnds.get(i)]=pendingSegments.get(i);
+			pendingEnds=null;
+			pendingSegments=null;
+			
+			Queue<Integer> queue=new ArrayDeque<>();
+			for(int child:children.get(0).values()) queue.add(child);
+			while(!queue.isEmpty()) {
+				int node=queue.poll();
+				for(Map.Entry<Object, Integer> e:children.get(node).entrySet()) {
+					int child=e.getValue();
+					int f=fail[node];
+					while(f!=0 && !children.get(f).containsKey(e.getKey())) f=fail[f];
+					Integer target=children.get(f).get(e.getKey());
+					fail[child]=target!=null && target!=child? target: 0;
+					outputLink[child]=segmentOf[fail[child]]!=-1? fail[child]: outputLink[fail[child]];
+					queue.add(child);
+				}
+			}
+		}
+		
+		/**
+		 * Marks all patterns of this automaton that match with the list.
+		 */
+		void match(List<T> env, boolean[] matching) {
+			int size=env.size();
+			if(size==0) {
+				for(int p:emptyPatterns) matching[p]=true;
+				return;
+			}
+			
+			//end positions of every segment in ascending order
+			int[][] ends=new int[segmentLengths.size()][];
+			int[] counts=new int[segmentLengths.size()];
+			List<Integer> found=new ArrayList<>();
+			
+			int node=0;
+			for(int i=0; i<size; i++) {
+				Object key=comparison.equivalenceKey(env.get(i));
+				Integer next=children.get(node).get(key);
+				while(next==null && node!=0) {
+					node=fail[node];
+					next=children.get(node).get(key);
+				}
+				node=next==null? 0: next;
+				
+				for(int out=segmentOf[node]!=-1? node: outputLink[node]; out!=-1; out=outputLink[out]) {
+					int seg=segmentOf[out];
+					if(ends[seg]==null) {
+						ends[seg]=new int[4];
+						found.add(seg);
+					}else if(counts[seg]==ends[seg].length) {
+						ends[seg]=Arrays.copyOf(ends[seg], counts[seg]*2);
+					}
+					ends[seg][counts[seg]++]=i;
+				}
+			}
+			
+			//only patterns whose segments all occurred are checked
+			int[] hits=new int[positions.size()];
+			for(int seg:found) {
+				for(int p:patternsOfSegment.get(seg)) {
+					if(++hits[p]==distinctSegments.get(p) && check(p, size, ends, counts)) {
+						matching[positions.get(p)]=true;
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Places the segments of a pattern like {@link PatternMatcher} does, but with the recorded end positions.
+		 */
+		private boolean check(int pattern, int size, int[][] ends, int[] counts) {
+			int[] segs=segmentsOfPattern.get(pattern);
+			int last=segs.length-1;
+			boolean anchored=anchoredPatterns.get(pattern);
+			
+			if(anchored && last==0) {
+				int len=segmentLengths.get(segs[0]);
+				return size==len && endsAt(ends[segs[0]], counts[segs[0]], len-1);
+			}
+			
+			int pos=0, first=0;
+			if(anchored) {
+				int len=segmentLengths.get(segs[0]);
+				if(!endsAt(ends[segs[0]], counts[segs[0]], len-1)) return false;
+				pos=len;
+				first=1;
+			}
+			
+			for(int s=first; s<last; s++) {
+				int len=segmentLengths.get(segs[s]);
+				int end=firstEndAtLeast(ends[segs[s]], counts[segs[s]], pos+len-1);
+				if(end==-1) return false;
+				pos=end+1;
+			}
+			
+			int len=segmentLengths.get(segs[last]);
+			return size-len>=pos && endsAt(ends[segs[last]], counts[segs[last]], size-1);
+		}
+		
+		private static boolean endsAt(int[] ends, int count, int end) {
+			return Arrays.binarySearch(ends, 0, count, end)>=0;
+		}
+		
+		private static int firstEndAtLeast(int[] ends, int count, int min) {
+			int i=Arrays.binarySearch(ends, 0, count, min);
+			if(i<0) i=-i-1;
+			return i<count? ends[i]: -1;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A storage of the patterns of one {@link AspectManager.Aspect} outside of the database. It stores the same as a row
+ * of the table of the aspect: the key of a pattern, its author, its count and its blob.<p>
+ * A store is set with {@link AspectManager#setStore(AspectManager.Aspect, PatternStore)}, afterwards
+ * {@link PatternUsage} saves, scores and reads the patterns of the aspect with the store instead of its table.
+ * Aspects without a store use their table in the SQLite database.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ * @see prNet.MappedPatternStore
+ */
+public interface PatternStore extends Closeable {
+	
+	/**
+	 * A pattern that is saved.
+	 * 
+	 * @param key The key of the pattern, see {@link PatternUsage#createPatternKey(AspectManager.Aspect, Pattern)}
+	 * @param count The count that is added
+	 * @param blob The pattern encoded by the {@link PatternCodec} of the aspect
+	 */
+	public record Entry(String key, int count, byte[] blob) {}
+	
+	
+	/**
+	 * Saves the patterns of an author as uniques, the count of a pattern that is already stored is added to the stored
+	 * one and its blob is kept. Either all or none of the entries are saved.
+	 * 
+	 * @param author The author of the patterns
+	 * @param entries The patterns
+	 * @throws IOException
+	 */
+	public void save(String author, List<Entry> entries) throws IOException;
+	
+	/**
+	 * Saves a single pattern of an author like {@link #save(String, List)}, the counterpart of
+	 * {@link SQLoperations#savePattern(Pattern, String, AspectManager.Aspect, java.sql.Connection)}.
+	 * 
+	 * @param author The author of the pattern
+	 * @param entry The pattern
+	 * @throws IOException
+	 */
+	public default void save(String author, Entry entry) throws IOException {
+		save(author, List.of(entry));
+	}
+	
+	/**
+	 * @param key The key of a pattern
+	 * @param author An author
+	 * @return The count of the pattern by the author or 0
+	 */
+	public int getCount(String key, String author);
+	
+	/**
+	 * @param author An author
+	 * @return The sum of the counts of all patterns by the author
+	 */
+	public long getTotal(String author);
+	
+	/**
+	 * @param author An author
+	 * @return The blobs of all patterns by the author
+	 */
+	public List<byte[]> getBlobs(String author);
+	
+	/**
+	 * Scores all authors whose patterns have one of the given keys, like
+	 * {@link PatternUsage#findMatchingAuthors(List, AspectManager.Aspect, java.sql.Connection, boolean, int, int, int)}
+	 * does with the table of an aspect.
+	 * 
+	 * @param textKeys The keys of the patterns, a key that is given more than once counts more than once
+	 * @param ignoreLow If patterns with a count of 0 are ignored instead of being counted once
+	 * @param highest If only the authors with the highest count of each key are scored
+	 * @param percent If the scores are converted into percentages of the total count of each author
+	 * @param min The minimum count of a pattern or -1
+	 * @param max The maximum count of a pattern or -1, only used together with min
+	 * @param result Receives every matching author and its score
+	 */
+	public void score(List<String> textKeys, boolean ignoreLow, boolean highest, boolean percent, int min, int max, ObjDoubleConsumer<String> result);
+}
@@ -11,13 +11,18 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
+import ext.ConnectionPool;
 import ext.General;
 import prNet.AspectManager.Aspect;
 
@@ -39,20 +44,13 @@ public abstract class PatternUsage {
 	 */
 	public static <T, P extends BasePattern<T>> boolean match(P environment, P pattern) {
 		Comparison<T, T> com=pattern.getComparison().and(environment.getComparison());
-		List<T>
-			patternEnv=new LinkedList<>(pattern.getElements()),
-			env=new LinkedList<>(environment.getElements());
-		
-		for(T t:env) {
-			if(t==null) throw new IllegalArgumentException("Argument cannot be null");
-		}
-		
-		return match(env, patternEnv, com);
+		return new PatternMatcher<>(pattern.getElements(), com).matches(environment.getElements());
 	}
 	
 	
 	/**
-	 * Checks if the given pattern matches with the given list.
+	 * Checks if the given pattern matches with the given list. The pattern is compiled once into a
+	 * {@link PatternMatcher} and reused for every later call.
 	 * 
 	 * @param <T> The type of elements in the list and pattern
 	 * @param <P> The type of a pattern that extends the {@link BasePattern}
@@ -61,44 +59,19 @@ public abstract class PatternUsage {
 	 * @return If the pattern matches on the list
 	 */
 	public static <T, P extends BasePattern<T>> boolean match(List<T> environment, P pattern) {
-		Comparison<T, T> com=pattern.getComparison();
-		List<T>
-			patternEnv=new LinkedList<>(pattern.getElements()),
-			env=new LinkedList<>(environment);
-		
-		for(T t:env) {
-			if(t==null) throw new IllegalArgumentException("Argument cannot be null");
-		}
-		
-		return match(env, patternEnv, com);
+		return pattern.matcher().matches(environment);
 	}
 	
-	private static <T> boolean match(List<T> env, List<T> patternEnv, Comparison<T, T> com) {
-		while(env.size()>0 && patternEnv.size()>0) {
-			if(patternEnv.get(0)==null) {
-				T next=patternEnv.get(1);
-				List<Integer> indices=PatternSearch.allIndicesOf(env, next, com);
-				
-				for(int c:indices) {
-					List<T>
-						newEnv=new LinkedList<>(env),
-						newPatternEnv=new LinkedList<>(patternEnv);
-					newPatternEnv.remove(0);
-					PatternSearch.removeIndicesTillBorder(newEnv, c-1);
-					
-					if(match(newEnv, newPatternEnv, com)) return true;
-				}
-				
-				return false;
-			}else {
-				if(!com.compare(env.get(0), patternEnv.get(0))) return false;
-			}
-			
-			env.remove(0);
-			patternEnv.remove(0);
-		}
-		
-		return env.size()==0 && patternEnv.size()==0;
+	/**
+	 * Checks if the given int pattern matches with the given array, like {@link #match(List, BasePattern)}
+	 * without boxing the elements.
+	 * 
+	 * @param environment The array on which the check will be performed on
+	 * @param pattern The {@link IntPattern} that will be checked
+	 * @return If the pattern matches on the array
+	 */
+	public static boolean match(int[] environment, IntPattern pattern) {
+		return pattern.matches(environment);
 	}
 	
 	/**
@@ -113,6 +86,169 @@ public abstract class PatternUsage {
 		return PatternSearch.findPatterns(comparison, analyzableElements);
 	}
 	
+	/**
+	 * Finds all patterns in the given int arrays, their elements are compared by equality.
+	 * 
+	 * @param analyzableElements The arrays that contain analyzable content
+	 * @return All found patterns
+	 * @see IntPatternSearch
+	 */
+	public static List<IntPattern> findPatterns(List<int[]> analyzableElements) {
+		return IntPatternSearch.findPatterns(analyzableElements);
+	}
+	
+	/**
+	 * Finds all patterns in the given list. The result is the same for every {@link SearchMode} but
+	 * {@link SearchMode#MAXIMAL_MATCHES}, {@link SearchMode#INDEXED} should be used for longer lists and
+	 * {@link SearchMode#SUFFIX_ARRAY} for lists that share long parts. {@link SearchMode#MAXIMAL_MATCHES} grows
+	 * about linearly with the length of the lists but only finds the patterns of non-overlapping matches.
+	 * 
+	 * @param <T> The type of elements in the list
+	 * @param analyzableElements The list that contains analyzable content
+	 * @param comparison The {@link Comparison} used to check if 2 elements are equal
+	 * @param mode The {@link SearchMode} used to compare two lists
+	 * @return All found patterns
+	 */
+	public static <T> List<Pattern<T>> findPatterns(Comparison<T, T> comparison, List<List<T>> analyzableElements, SearchMode mode) {
+		return PatternSearch.findPatterns(comparison, analyzableElements, mode);
+	}
+	
+	/**
+	 * Finds all patterns in the given list and collects them in the given {@link PatternAccumulator}. An accumulator
+	 * with a key function finds equal patterns in constant time instead of comparing every found pattern with all others.
+	 * 
+	 * @param <T> The type of elements in the list
+	 * @param analyzableElements The list that contains analyzable content
+	 * @param comparison The {@link Comparison} used to check if 2 elements are equal
+	 * @param mode The {@link SearchMode} used to compare two lists
+	 * @param accumulator The {@link PatternAccumulator} that counts the found patterns
+	 * @return All patterns of the accumulator
+	 */
+	public static <T> List<Pattern<T>> findPatterns(Comparison<T, T> comparison, List<List<T>> analyzableElements, SearchMode mode, PatternAccumulator<T> accumulator) {
+		return PatternSearch.findPatterns(comparison, analyzableElements, mode, accumulator);
+	}
+	
+	/**
+	 * Finds all patterns in the given list that are within the given limits. Every suffix is only followed as long as
+	 * it can lead to an allowed pattern.
+	 * 
+	 * @param <T> The type of elements in the list
+	 * @param comparison The {@link Comparison} used to check if 2 elements are equal
+	 * @param analyzableElements The list that contains analyzable content
+	 * @param mode The {@link SearchMode} used to compare two lists
+	 * @param limits The {@link SearchLimits} of the patterns
+	 * @return All found patterns
+	 */
+	public static <T> List<Pattern<T>> findPatterns(Comparison<T, T> comparison, List<List<T>> analyzableElements, SearchMode mode, SearchLimits limits) {
+		return PatternSearch.findPatterns(comparison, analyzableElements, mode, PatternAccumulator.of(comparison), limits);
+	}
+	
+	/**
+	 * Finds all patterns in the given list under the given {@link Aspect}. The keyFunction of the aspect is used to find
+	 * equal patterns, so it has to return equal keys for elements that are equal under its comparison. Only patterns
+	 * within the {@link AspectManager#getLimits(Aspect) limits} of the aspect are found.
+	 * 
+	 * @param <T> The type of elements in the list
+	 * @param aspect The {@link Aspect} under which the list will be analyzed
+	 * @param analyzableElements The list that contains analyzable content
+	 * @param mode The {@link SearchMode} used to compare two lists
+	 * @return All found patterns
+	 */
+	public static <T> List<Pattern<T>> findPatterns(Aspect<T> aspect, List<List<T>> analyzableElements, SearchMode mode) {
+		Metrics metrics=Metrics.get();
+		long start=metrics.start();
+		List<Pattern<T>> ret=PatternSearch.findPatterns(aspect.comparison(), analyzableElements, mode, new PatternAccumulator<>(aspect.keyFunction()), AspectManager.getLimits(aspect));
+		metrics.stop(Metrics.Timer.SEARCH, aspect.name(), start);
+		return ret;
+	}
+	
+	/**
+	 * Finds all patterns in the given list. Every pair of two lists is compared in parallel on the
+	 * {@link ForkJoinPool#commonPool()}, the result is the same as {@link #findPatterns(Comparison, List)}.
+	 * 
+	 * @param <T> The type of elements in the list
+	 * @param analyzableElements The list that contains analyzable content
+	 * @param comparison The {@link Comparison} used to check if 2 elements are equal, it has to be thread-safe
+	 * @return All found patterns
+	 */
+	public static <T> List<Pattern<T>> findPatternsParallel(Comparison<T, T> comparison, List<List<T>> analyzableElements) {
+		return PatternSearch.findPatternsParallel(comparison, analyzableElements, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Finds all patterns in the given list. Every pair of two lists is compared in parallel on the given
+	 * {@link Executor}, the result is the same as {@link #findPatterns(Comparison, List)}.
+	 * 
+	 * @param <T> The type of elements in the list
+	 * @param analyzableElements The list that contains analyzable content
+	 * @param comparison The {@link Comparison} used to check if 2 elements are equal, it has to be thread-safe
+	 * @param executor The {@link Executor} that runs the comparisons
+	 * @return All found patterns
+	 */
+	public static <T> List<Pattern<T>> findPatternsParallel(Comparison<T, T> comparison, List<List<T>> analyzableElements, Executor executor) {
+		return PatternSearch.findPatternsParallel(comparison, analyzableElements, executor);
+	}
+	
+	/**
+	 * Finds all patterns in the given list like {@link #findPatternsParallel(Comparison, List, Executor)} and collects
+	 * them in the given {@link PatternAccumulator}.
+	 * 
+	 * @param <T> The type of elements in the list
+	 * @param analyzableElements The list that contains analyzable content
+	 * @param comparison The {@link Comparison} used to check if 2 elements are equal, it has to be thread-safe
+	 * @param executor The {@link Executor} that runs the comparisons
+	 * @param accumulator The {@link PatternAccumulator} that counts the found patterns
+	 * @return All patterns of the accumulator
+	 */
+	public static <T> List<Pattern<T>> findPatternsParallel(Comparison<T, T> comparison, List<List<T>> analyzableElements, Executor executor, PatternAccumulator<T> accumulator) {
+		return PatternSearch.findPatternsParallel(comparison, analyzableElements, executor, accumulator);
+	}
+	
+	/**
+	 * Finds all patterns in the given list under every given {@link Aspect} in one pass over all pairs of lists.
+	 * The result of every aspect is the same as {@link #findPatterns(Comparison, List)} with its comparison.
+	 * 
+	 * @param <T> The type of elements in the list
+	 * @param aspects The aspects under which the list will be analyzed
+	 * @param analyzableElements The list that contains analyzable content
+	 * @return All found patterns of every aspect in the order of the aspects
+	 * @throws IllegalArgumentException If an aspect is given more than once
+	 */
+	public static <T> Map<Aspect<T>, List<Pattern<T>>> findPatterns(List<Aspect<T>> aspects, List<List<T>> analyzableElements) {
+		return PatternSearch.findPatterns(aspects, analyzableElements, Runnable::run);
+	}
+	
+	/**
+	 * Finds all patterns in the given list under every given {@link Aspect} like {@link #findPatterns(List, List)},
+	 * but every pair of two lists is compared on the given {@link Executor}.
+	 * 
+	 * @param <T> The type of elements in the list
+	 * @param aspects The aspects under which the list will be analyzed, their comparisons have to be thread-safe
+	 * @param analyzableElements The list that contains analyzable content
+	 * @param executor The {@link Executor} that runs the comparisons
+	 * @return All found patterns of every aspect in the order of the aspects
+	 * @throws IllegalArgumentException If an aspect is given more than once
+	 */
+	public static <T> Map<Aspect<T>, List<Pattern<T>>> findPatterns(List<Aspect<T>> aspects, List<List<T>> analyzableElements, Executor executor) {
+		return PatternSearch.findPatterns(aspects, analyzableElements, executor);
+	}
+	
+	/**
+	 * Finds all patterns in the given objects under every given {@link Aspect}. Every object is arranged only once.
+	 * 
+	 * @param <T> The type of elements in the list
+	 * @param aspects The aspects under which the objects will be analyzed
+	 * @param analyzableElements The objects that contain analyzable content
+	 * @return All found patterns of every aspect in the order of the aspects
+	 * @throws IllegalArgumentException If an aspect is given more than once
+	 */
+	@SafeVarargs
+	public static <T> Map<Aspect<T>, List<Pattern<T>>> findPatterns(List<Aspect<T>> aspects, ArrangeableToList<T>...analyzableElements) {
+		List<List<T>> arranged=new ArrayList<>(analyzableElements.length);
+		for(ArrangeableToList<T> cur:analyzableElements) arranged.add(Objects.requireNonNull(cur.arrange()));
+		return PatternSearch.findPatterns(aspects, arranged, Runnable::run);
+	}
+	
 	/**
 	 * Finds all patterns in the given list.
 	 * 
@@ -153,17 +289,167 @@ public abstract class PatternUsage {
 	 * @throws IOException
 	 */
 	public static <T extends Serializable> void findAndSavePatterns(List<List<T>> analyzeableElements, String author, Statement stat, Aspect<T> aspect) throws SQLException, ClassNotFoundException, IOException {
-		List<Pattern<T>> patterns=PatternSearch.findPatterns(aspect.comparison(), analyzeableElements);
+		List<Pattern<T>> patterns=search(aspect, analyzeableElements);
+		savePatterns(patterns, author, stat, aspect);
+	}
+	
+	/**
+	 * Saves the given patterns in the database in one transaction, like {@link #findAndSavePatterns(List, String, Statement, Aspect)}
+	 * does with the patterns it found. If saving fails, the transaction is rolled back. If the aspect has a
+	 * {@link PatternStore}, the patterns are saved in it instead.
+	 * 
+	 * @param <T> The type of elements in the patterns
+	 * @param patterns The found patterns
+	 * @param author The author of the patterns
+	 * @param stat The {@link Statement} that connects with the database
+	 * @param aspect The aspect under which the patterns were found
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static <T extends Serializable> void savePatterns(List<Pattern<T>> patterns, String author, Statement stat, Aspect<T> aspect) throws SQLException, IOException {
+		Metrics metrics=Metrics.get();
+		long start=metrics.start();
+		PatternStore store=AspectManager.getStore(aspect);
+		if(store!=null) {
+			store.save(author, toEntries(patterns, aspect));
+		}else {
+			stat.executeUpdate("begin");
+			try {
+				//saves everything as multiple entries:
+				//SQLs.savePattern(cur, text.getAuthor(), aspect, stat.getConnection());
+				
+				//saves everything as single entries:
+				SQLoperations.savePatternsAsUniques(patterns, author, aspect, stat.getConnection());
+			}catch(SQLException | IOException | RuntimeException e) {
+				stat.executeUpdate("rollback");
+				throw e;
+			}
+			stat.executeUpdate("commit");
+		}
+		
+		updateAuthorIndex(patterns, author, aspect);
+		metrics.stop(Metrics.Timer.SAVE, aspect.name(), start);
+	}
+	
+	
+	/**
+	 * Finds and saves all patterns in the given 2-dimensional list under every given {@link Aspect}. The patterns are
+	 * found in one pass like {@link #findPatterns(List, List)} and saved in one transaction, except the ones of aspects
+	 * with a {@link PatternStore}, which are saved in their store afterwards.
+	 * 
+	 * @param <T> The type of elements in the list and later in the patterns
+	 * @param analyzeableElements The 2-dimensional list that will be analyzed
+	 * @param author The author of the list
+	 * @param stat The {@link Statement} that connects with the database
+	 * @param aspects The aspects under which the list will be analyzed
+	 * @throws SQLException
+	 * @throws IOException
+	 * @throws IllegalArgumentException If an aspect is given more than once
+	 */
+	public static <T extends Serializable> void findAndSavePatterns(List<List<T>> analyzeableElements, String author, Statement stat, List<Aspect<T>> aspects) throws SQLException, IOException {
+		Map<Aspect<T>, List<Pattern<T>>> found=PatternSearch.findPatterns(aspects, analyzeableElements, Runnable::run);
 		
 		stat.executeUpdate("begin");
-		for(Pattern<T> cur:patterns) {
-			//saves everything as multiple entries:
-			//SQLs.savePattern(cur, text.getAuthor(), aspect, stat.getConnection());
-			
-			//saves everything as single entries:
-			SQLoperations.savePatternAsUniques(cur, author, aspect, stat);
+		for(Map.Entry<Aspect<T>, List<Pattern<T>>> cur:found.entrySet()) {
+			if(AspectManager.getStore(cur.getKey())==null) SQLoperations.savePatternsAsUniques(cur.getValue(), author, cur.getKey(), stat.getConnection());
 		}
 		stat.executeUpdate("commit");
+		for(Map.Entry<Aspect<T>, List<Pattern<T>>> cur:found.entrySet()) {
+			PatternStore store=AspectManager.getStore(cur.getKey());
+			if(store!=null) store.save(author, toEntries(cur.getValue(), cur.getKey()));
+		}
+		
+		found.forEach((aspect, patterns)->updateAuthorIndex(patterns, author, aspect));
+	}
+	
+	/**
+	 * Finds the patterns like {@link #findAndSavePatterns(List, String, Statement, Aspect)} on the given executor and
+	 * saves them with the writing connection of the pool, so the search doesn't hold the connection.
+	 * 
+	 * @param <T> The type of elements in the list and later in the patterns
+	 * @param analyzeableElements The 2-dimensional list that will be analyzed
+	 * @param author The author of the list
+	 * @param pool The {@link ConnectionPool} of the database
+	 * @param aspect The aspect under which the list will be analyzed
+	 * @param executor The {@link Executor} that runs the search and the saving
+	 * @return Completes when the patterns are saved
+	 */
+	public static <T extends Serializable> CompletableFuture<Void> findAndSavePatternsAsync(List<List<T>> analyzeableElements, String author, ConnectionPool pool, Aspect<T> aspect, Executor executor) {
+		return CompletableFuture.supplyAsync(()->search(aspect, analyzeableElements), executor)
+				.thenCompose(patterns->savePatternsAsync(patterns, author, pool, aspect, executor));
+	}
+	
+	/**
+	 * Saves the patterns like {@link #savePatterns(List, String, Statement, Aspect)} with the writing connection of the pool.
+	 * 
+	 * @param <T> The type of elements in the patterns
+	 * @param patterns The found patterns
+	 * @param author The author of the patterns
+	 * @param pool The {@link ConnectionPool} of the database
+	 * @param aspect The aspect under which the patterns were found
+	 * @param executor The {@link Executor} that runs the saving
+	 * @return Completes when the patterns are saved
+	 */
+	public static <T extends Serializable> CompletableFuture<Void> savePatternsAsync(List<Pattern<T>> patterns, String author, ConnectionPool pool, Aspect<T> aspect, Executor executor) {
+		return pool.writeAsync(conn->{
+			try(Statement stat=conn.createStatement()) {
+				savePatterns(patterns, author, stat, aspect);
+			}
+			return null;
+		}, executor);
+	}
+	
+	/**
+	 * Reads all patterns of an author under the given aspect from its {@link PatternStore} or, without a store, from
+	 * its table like {@link SQLoperations#getAllPatternsByAuthor(String, Aspect, Connection)}.
+	 * 
+	 * @param <T> The type of elements in the patterns
+	 * @param author The author
+	 * @param aspect The {@link Aspect} of the patterns
+	 * @param conn The {@link Connection} to the database, only used without a store
+	 * @return All patterns of the author
+	 * @throws ClassNotFoundException
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static <T extends Serializable> List<BasePattern<T>> getAllPatternsByAuthor(String author, Aspect<T> aspect, Connection conn) throws ClassNotFoundException, SQLException, IOException {
+		PatternStore store=AspectManager.getStore(aspect);
+		if(store==null) return SQLoperations.getAllPatternsByAuthor(author, aspect, conn);
+		
+		PatternCodec<T> codec=AspectManager.getCodec(aspect);
+		List<BasePattern<T>> ret=new ArrayList<>();
+		for(byte[] cur:store.getBlobs(author)) ret.add(codec.decode(cur, aspect.comparison()));
+		return ret;
+	}
+	
+	
+	//the search of findAndSavePatterns, timed for the aspect
+	private static <T> List<Pattern<T>> search(Aspect<T> aspect, List<List<T>> analyzeableElements) {
+		Metrics metrics=Metrics.get();
+		long start=metrics.start();
+		List<Pattern<T>> ret=PatternSearch.findPatterns(aspect.comparison(), analyzeableElements, SearchMode.LINKED, PatternAccumulator.of(aspect.comparison()), AspectManager.getLimits(aspect));
+		metrics.stop(Metrics.Timer.SEARCH, aspect.name(), start);
+		return ret;
+	}
+	
+	//the patterns as entries of a PatternStore, without the empty pattern like in the table
+	private static <T> List<PatternStore.Entry> toEntries(List<Pattern<T>> patterns, Aspect<T> aspect) throws IOException {
+		PatternCodec<T> codec=AspectManager.getCodec(aspect);
+		List<PatternStore.Entry> ret=new ArrayList<>(patterns.size());
+		for(Pattern<T> cur:patterns) {
+			String key=createPatternKey(aspect, cur);
+			if(!key.equals("{}")) ret.add(new PatternStore.Entry(key, cur.getDefaultCount(), codec.encode(cur.getRawType())));
+		}
+		return ret;
+	}
+	
+	private static <T> void updateAuthorIndex(List<Pattern<T>> patterns, String author, Aspect<T> aspect) {
+		AuthorIndex index=AspectManager.getAuthorIndex(aspect);
+		if(index==null) return;
+		for(Pattern<T> cur:patterns) {
+			String key=createPatternKey(aspect, cur);
+			if(!key.equals("{}")) index.add(key, author, cur.getDefaultCount());
+		}
 	}
 	
 	
@@ -288,124 +574,137 @@ public abstract class PatternUsage {
 	 * @return The result of the operation of the given mode
 	 * @throws SQLException
 	 */
-	private static List<String> gTextKeys;
 	public static <T> Map<String, Double> findMatchingAuthors(List<Pattern<T>> text, Aspect<T> aspect, Connection conn, boolean ignoreLow, int mode/*Standard=2*/, int min, int max) throws SQLException {
 		String table=aspect.table();
-		List<String> textKeys= gTextKeys= text.stream()
+		List<String> textKeys=text.stream()
 				.map(o->createPatternKey(aspect, o))
 				.collect(Collectors.toList());
 		
-		HashMap<String, Double>
-			authors=new HashMap<>(),
-			authorsByPercent;
+		//returns an empty HashMap
+		if(mode<0 || mode>3) return new HashMap<>();
 		
-		Statement stat=conn.createStatement();
+		//mode 1 and 3 only use the highest, mode 2 and 3 calculate percentages
+		boolean
+			highest=mode==1 || mode==3,
+			percent=mode==2 || mode==3;
 		
-		//short for "ignore regular expressions", don't use this except you know what your doing!
-		boolean ignoreReg=false;
-		
-		switch(mode) {
-			//uses total count of patterns
-			case 0:
-				for(String key:textKeys) {
-					General.addToMap(authors, findAuthors(key, table, stat, ignoreReg, ignoreLow, min, max), (a, b)->a+b);
-				}
-				
-				stat.close();
-				return General.sortMap(authors);
-				
-			//uses the highest of total count of patterns
-			//edit: DON'T TOUCH THIS!
-			case 1:
-				for(String key:textKeys) {
-					General.addToMap(authors, General.getHighest(findAuthors(key, table, stat, ignoreReg, ignoreLow, min, max)), (a, b)->a+b);
-				}
-				
-				stat.close();
-				return General.sortMap(authors);
-				
-			//calculates percentages
-			case 2:
-				for(String key:textKeys) {
-					General.addToMap(authors, findAuthors(key, table, stat, ignoreReg, ignoreLow, min, max), (a, b)->a+b);
-				}
-				
-				authorsByPercent=calcualtePercentage(authors, table, stat);
-				
-				stat.close();
-				return authorsByPercent;
-				
-			//calculates percentages but only uses the highest
-			//edit: DON'T TOUCH THIS!
-			case 3:
-				for(String key:textKeys) {
-					General.addToMap(authors, General.getHighest(findAuthors(key, table, stat, ignoreReg, ignoreLow, min, max)), (a, b)->a+b);
-				}
-				
-				authorsByPercent=calcualtePercentage(authors, table, stat);
-				
-				stat.close();
-				return authorsByPercent;
-				
-			//returns an empty HashMap
-			default:
-				return authors;
+		Metrics metrics=Metrics.get();
+		long start=metrics.start();
+		PatternStore store=AspectManager.getStore(aspect);
+		AuthorIndex index=AspectManager.getAuthorIndex(aspect);
+		HashMap<String, Double> authors;
+		if(store!=null) {
+			authors=new HashMap<>();
+			store.score(textKeys, ignoreLow, highest, percent, min, max, authors::put);
+		}else {
+			authors=index!=null?
+					index.scoreAuthors(textKeys, ignoreLow, highest, percent, min, max):
+					SQLoperations.scoreAuthors(textKeys, table, ignoreLow, highest, percent, min, max, conn);
 		}
+		metrics.stop(Metrics.Timer.SCORE, aspect.name(), start);
+		
+		if(percent) return authors;
+		return General.sortMap(authors);
 		
 	}
 	
-	
-	private static HashMap<String, Double> calcualtePercentage(HashMap<String, Double> authors, String table, Statement stat) throws SQLException {
-		HashMap<String, Integer> totalAuthorsCount=new HashMap<>();
-		
-		for(Map.Entry<String, Double> cEntry:authors.entrySet()) {
-			String cAuthor=cEntry.getKey();
-			totalAuthorsCount.put(cAuthor, countAllPatterns(cAuthor, table, stat));
-		}
+	/**
+	 * Finds the k best matching authors. The authors are scored like {@link #findMatchingAuthors(List, Aspect, Connection, boolean, int, int, int)}
+	 * with the same mode, but instead of a map of all of them only the k best are returned. In the database they are
+	 * ranked by the query itself, an author index or pattern store keeps them in a bounded heap while scoring.
+	 * A higher score ranks better, equal scores are ordered by the name of the author.
+	 * 
+	 * @param <T> The type of elements in the patterns
+	 * @param text The {@link List} of pattern that will be compared with all authors in the database
+	 * @param aspect The {@link Aspect} under which the patterns were analyzed
+	 * @param conn The {@link Connection} to the database
+	 * @param ignoreLow Decides if every pattern that was found only once should be ignored or not
+	 * @param mode The mode of {@link #findMatchingAuthors(List, Aspect, Connection, boolean, int, int, int)}
+	 * @param min The minimum count of a pattern needed in the database to be used in the calculation
+	 * @param max The maximum count of a pattern needed in the database to be used in the calculation
+	 * @param k The amount of authors, at least 1
+	 * @return The k best authors, the best first, or an empty list if the mode doesn't exist
+	 * @throws SQLException
+	 */
+	public static <T> List<AuthorScore> findTopAuthors(List<Pattern<T>> text, Aspect<T> aspect, Connection conn, boolean ignoreLow, int mode/*Standard=2*/, int min, int max, int k) throws SQLException {
+		if(mode<0 || mode>3) return new ArrayList<>();
+		List<String> textKeys=text.stream()
+				.map(o->createPatternKey(aspect, o))
+				.collect(Collectors.toList());
+		boolean
+			highest=mode==1 || mode==3,
+			percent=mode==2 || mode==3;
 		
-		HashMap<String, Double> authorsByPercent=new HashMap<>();
-		for(Map.Entry<String, Double> c:authors.entrySet()) {
-			String cAuthor=c.getKey();
-			double
-				cTotalCount=totalAuthorsCount.get(cAuthor),
-				cCurrentCount=c.getValue(),
-				result=cCurrentCount/cTotalCount*100d;
-			
-			authorsByPercent.put(cAuthor, result);
+		Metrics metrics=Metrics.get();
+		long start=metrics.start();
+		PatternStore store=AspectManager.getStore(aspect);
+		AuthorIndex index=AspectManager.getAuthorIndex(aspect);
+		List<AuthorScore> ret;
+		if(store!=null) {
+			AuthorRanking ranking=new AuthorRanking(k);
+			store.score(textKeys, ignoreLow, highest, percent, min, max, ranking::offer);
+			ret=ranking.toList();
+		}else {
+			ret=index!=null?
+					index.topAuthors(textKeys, ignoreLow, highest, percent, min, max, k):
+					SQLoperations.topAuthors(textKeys, aspect.table(), ignoreLow, highest, percent, min, max, k, conn);
 		}
-		
-		return authorsByPercent;
+		metrics.stop(Metrics.Timer.SCORE, aspect.name(), start);
+		return ret;
+	}
+	
+	/**
+	 * Finds the k best matching authors like {@link #findTopAuthors(List, Aspect, Connection, boolean, int, int, int, int)}
+	 * without a minimum or maximum count.
+	 * 
+	 * @param <T> The type of elements in the patterns
+	 * @param text The {@link List} of pattern that will be compared with all authors in the database
+	 * @param aspect The {@link Aspect} under which the patterns were analyzed
+	 * @param conn The {@link Connection} to the database
+	 * @param ignoreLow Decides if every pattern that was found only once should be ignored or not
+	 * @param mode The mode of {@link #findMatchingAuthors(List, Aspect, Connection, boolean, int, int, int)}
+	 * @param k The amount of authors, at least 1
+	 * @return The k best authors, the best first, or an empty list if the mode doesn't exist
+	 * @throws SQLException
+	 */
+	public static <T> List<AuthorScore> findTopAuthors(List<Pattern<T>> text, Aspect<T> aspect, Connection conn, boolean ignoreLow, int mode/*Standard=2*/, int k) throws SQLException {
+		return findTopAuthors(text, aspect, conn, ignoreLow, mode, -1, -1, k);
 	}
 	
+	/**
+	 * Runs {@link #findMatchingAuthors(List, Aspect, Connection, boolean, int, int, int)} with a reading connection of
+	 * the pool on the given executor. As many scorings run at once as the pool has reading connections, the others wait
+	 * for a free one.
+	 * 
+	 * @param <T> The type of elements in the patterns
+	 * @param text The {@link List} of pattern that will be compared with all authors in the database
+	 * @param aspect The {@link Aspect} under which the patterns were analyzed
+	 * @param pool The {@link ConnectionPool} of the database
+	 * @param ignoreLow Decides if every pattern that was found only once should be ignored or not
+	 * @param mode The mode of {@link #findMatchingAuthors(List, Aspect, Connection, boolean, int, int, int)}
+	 * @param min The minimum count of a pattern needed in the database to be used in the calculation
+	 * @param max The maximum count of a pattern needed in the database to be used in the calculation
+	 * @param executor The {@link Executor} that runs the scoring
+	 * @return The result of the operation of the given mode
+	 */
+	public static <T> CompletableFuture<Map<String, Double>> findMatchingAuthorsAsync(List<Pattern<T>> text, Aspect<T> aspect, ConnectionPool pool, boolean ignoreLow, int mode/*Standard=2*/, int min, int max, Executor executor) {
+		return pool.readAsync(conn->findMatchingAuthors(text, aspect, conn, ignoreLow, mode, min, max), executor);
+	}
 	
-	private static HashMap<String, Double> findAuthors(String key, String table, Statement stat, boolean ignoreReg, boolean ignoreLow, int min, int max) throws SQLException {
-		// An experimental option to filter low keys out, don't use this yet.
-		boolean delLowVal=false;
-		
-		HashMap<String, Double> count=new HashMap<>();
-		String nKey=ignoreReg? key.replace(", *", "").replace(", ", "%"): key;
-		
-		String extraCondition="";
-		if(max>-1 && min>-1) {
-			extraCondition="and count>="+min+" and count<="+max;
-		}else if(min>-1) {
-			extraCondition="and count>="+min;
-		}
-		
-		ResultSet rs=stat.executeQuery("select author, count from "+table+" where key='"+nKey+"' "+extraCondition);
-		while(rs.next()) {
-			double pr=rs.getDouble(2);
-			if(!ignoreLow && pr==0.0d) {
-				pr++;
-			}
-			else if(pr==0.0d) continue;
-			else if(delLowVal){
-				if(gTextKeys.contains(key))
-					pr--;
-			}
-			
-			count.put(rs.getString(1), pr);
-		}
-		return count;
+	/**
+	 * Runs {@link #findMatchingAuthors(List, Aspect, Connection, boolean, int)} with a reading connection of the pool
+	 * on the given executor.
+	 * 
+	 * @param <T> The type of elements in the patterns
+	 * @param text The {@link List} of pattern that will be compared with all authors in the database
+	 * @param aspect The {@link Aspect} under which the patterns were analyzed
+	 * @param pool The {@link ConnectionPool} of the database
+	 * @param ignoreLow Decides if every pattern that was found only once should be ignored or not
+	 * @param mode The mode of {@link #findMatchingAuthors(List, Aspect, Connection, boolean, int)}
+	 * @param executor The {@link Executor} that runs the scoring
+	 * @return The result of the operation of the given mode
+	 */
+	public static <T> CompletableFuture<Map<String, Double>> findMatchingAuthorsAsync(List<Pattern<T>> text, Aspect<T> aspect, ConnectionPool pool, boolean ignoreLow, int mode/*Standard=2*/, Executor executor) {
+		return findMatchingAuthorsAsync(text, aspect, pool, ignoreLow, mode, -1, -1, executor);
 	}
 }
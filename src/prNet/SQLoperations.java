@@ -8,9 +8,16 @@ package prNet;
 import java.io.IOException;
 import java.io.Serializable;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.ObjDoubleConsumer;
+import java.util.stream.Stream;
 
 import ext.BlobHandler;
 import ext.InferedBlobHandler;
@@ -18,18 +25,251 @@ import prNet.AspectManager.Aspect;
 
 abstract class SQLoperations {
 	
+	/**
+	 * The amount of patterns that are sent to the database with one batch.
+	 */
+	static final int BATCH_SIZE=1000;
+	
+	
+	/**
+	 * Creates the table of an aspect with its indexes or migrates an existing table to this schema.<p>
+	 * The primary key on key and author keeps every pattern of an author unique. The table keeps its rowid, so the
+	 * large blobs stay out of the b-trees of the keys, and two covering indexes answer the lookups without reading
+	 * the rows: the one on key, author and count the counts of a key, the one on author and count the sums per author.
+	 */
+	static void createTable(String table, Statement stat) throws SQLException {
+		String existing=null;
+		try(PreparedStatement pstmt=stat.getConnection().prepareStatement("select sql from sqlite_master where type='table' and name=?")) {
+			pstmt.setString(1, table);
+			ResultSet rs=pstmt.executeQuery();
+			if(rs.next()) existing=rs.getString(1);
+		}
+		
+		if(existing==null) {
+			stat.executeUpdate(tableDefinition(table));
+		}else if(!existing.toLowerCase().contains("primary key") || existing.toLowerCase().contains("without rowid")) {
+			migrateTable(table, stat);
+		}
+		stat.executeUpdate("create index if not exists \""+table+"_key_author_count\" on \""+table+"\" (\"key\", \"author\", \"count\");");
+		stat.executeUpdate("create index if not exists \""+table+"_author_count\" on \""+table+"\" (\"author\", \"count\");");
+	}
+	
+	private static String tableDefinition(String table) {
+		return "create table \""+table+"\" ("
+				+ "	\"key\"	TEXT not null,"
+				+ "	\"author\" TEXT not null,"
+				+ "	\"count\" INTEGER,"
+				+ "	\"blob\" BLOB,"
+				+ "	primary key(\"key\", \"author\")"
+				+ ");";
+	}
+	
+	/**
+	 * Moves all rows of a table that was created without keys or without a rowid into the current schema. Rows with the same key
+	 * and author, which could be created by {@link #savePattern(Pattern, String, Aspect, Connection)}, are merged
+	 * by adding up their counts.<p>
+	 * Rows without a key or an author can't be stored under the primary key. They are kept in the table
+	 * table_legacy and their amount is reported on the error stream, the legacy table is only dropped if it's empty.
+	 */
+	private static void migrateTable(String table, Statement stat) throws SQLException {
+		String legacy=table+"_legacy";
+		String valid="\"key\" is not null and \"author\" is not null";
+		stat.executeUpdate("savepoint prnet_migrate");
+		try {
+			stat.executeUpdate("alter table \""+table+"\" rename to \""+legacy+"\"");
+			stat.executeUpdate(tableDefinition(table));
+			stat.executeUpdate("insert into \""+table+"\" (\"key\", \"author\", \"count\", \"blob\") "
+					+ "select \"key\", \"author\", sum(\"count\"), \"blob\" from \""+legacy+"\" "
+					+ "where "+valid+" group by \"key\", \"author\"");
+			stat.executeUpdate("delete from \""+legacy+"\" where "+valid);
+			int kept;
+			try(ResultSet rs=stat.executeQuery("select count(*) from \""+legacy+"\"")) {
+				rs.next();
+				kept=rs.getInt(1);
+			}
+			if(kept==0) stat.executeUpdate("drop table \""+legacy+"\"");
+			else System.err.println(kept+" rows of "+table+" without a key or an author were kept in "+legacy);
+			stat.executeUpdate("release prnet_migrate");
+		}catch(SQLException e) {
+			stat.executeUpdate("rollback to prnet_migrate");
+			stat.executeUpdate("release prnet_migrate");
+			throw e;
+		}
+	}
+	
+	
+	/**
+	 * Scores all authors whose patterns have one of the given keys, like {@link PatternUsage#findMatchingAuthors(List, Aspect, Connection, boolean, int, int, int)}
+	 * but with one query instead of one per key and author. The keys are loaded into a temporary table, so the database
+	 * joins them with the table of the aspect through its covering index on key, author and count.
+	 * 
+	 * @param textKeys The keys of the patterns, a key that is given more than once counts more than once
+	 * @param table The table of the aspect
+	 * @param ignoreLow If patterns with a count of 0 are ignored instead of being counted once
+	 * @param highest If only the authors with the highest count of each key are scored
+	 * @param percent If the scores are converted into percentages of the total count of each author
+	 * @param min The minimum count of a pattern or -1
+	 * @param max The maximum count of a pattern or -1, only used together with min
+	 * @param conn The {@link Connection} to the database
+	 * @return The score of every matching author
+	 * @throws SQLException
+	 */
+	static HashMap<String, Double> scoreAuthors(List<String> textKeys, String table, boolean ignoreLow, boolean highest, boolean percent, int min, int max, Connection conn) throws SQLException {
+		HashMap<String, Double> ret=new HashMap<>();
+		String query=scoreQuery(table, ignoreLow, highest, min, max);
+		//the total count is only summed up for the authors that were found
+		if(percent) query+=" select s.\"author\", s.\"score\", "
+				+ "(select sum(a.\"count\") from \""+table+"\" a where a.\"author\"=s.\"author\") from \"scores\" s";
+		else query+=" select \"author\", \"score\" from \"scores\"";
+		score(textKeys, query, -1, percent, conn, ret::put);
+		return ret;
+	}
+	
+	/**
+	 * Scores all authors like {@link #scoreAuthors(List, String, boolean, boolean, boolean, int, int, Connection)} but
+	 * only returns the k best of them. The ranking is done by the database with order by and limit, ties are ordered by
+	 * the author, and the totals for the percentages are only summed up for the found authors.
+	 * 
+	 * @param textKeys The keys of the patterns, a key that is given more than once counts more than once
+	 * @param table The table of the aspect
+	 * @param ignoreLow If patterns with a count of 0 are ignored instead of being counted once
+	 * @param highest If only the authors with the highest count of each key are scored
+	 * @param percent If the scores are converted into percentages of the total count of each author
+	 * @param min The minimum count of a pattern or -1
+	 * @param max The maximum count of a pattern or -1, only used together with min
+	 * @param k The amount of authors
+	 * @param conn The {@link Connection} to the database
+	 * @return The k best authors, the best first
+	 * @throws SQLException
+	 */
+	static List<AuthorScore> topAuthors(List<String> textKeys, String table, boolean ignoreLow, boolean highest, boolean percent, int min, int max, int k, Connection conn) throws SQLException {
+		if(k<1) throw new IllegalArgumentException("k has to be at least 1");
+		List<AuthorScore> ret=new ArrayList<>();
+		score(textKeys, scoreQuery(table, ignoreLow, highest, min, max)+rankQuery(table, percent), k, false, conn,
+				(author, score)->ret.add(new AuthorScore(author, score)));
+		return ret;
+	}
+	
+	//runs the query with the text keys in a temp table, limit is its only parameter if it isn't -1
+	private static void score(List<String> textKeys, String query, int limit, boolean percent, Connection conn, ObjDoubleConsumer<String> result) throws SQLException {
+		Map<String, Integer> multiplicity=new HashMap<>();
+		for(String key:textKeys) multiplicity.merge(key, 1, Integer::sum);
+		
+		//the create, both deletes and the query, the batches are added below
+		int statements=4;
+		try(Statement stat=conn.createStatement()) {
+			stat.executeUpdate("create temp table if not exists prnet_text_keys (\"key\" TEXT primary key, \"n\" INTEGER) without rowid");
+			stat.executeUpdate("delete from temp.prnet_text_keys");
+			try {
+				try(PreparedStatement pstmt=conn.prepareStatement("insert into temp.prnet_text_keys values(?, ?)")) {
+					int batched=0;
+					for(Map.Entry<String, Integer> cur:multiplicity.entrySet()) {
+						pstmt.setString(1, cur.getKey());
+						pstmt.setInt(2, cur.getValue());
+						pstmt.addBatch();
+						if(++batched==BATCH_SIZE) {
+							pstmt.executeBatch();
+							statements++;
+							batched=0;
+						}
+					}
+					if(batched>0) {
+						pstmt.executeBatch();
+						statements++;
+					}
+				}
+				
+				try(PreparedStatement pstmt=conn.prepareStatement(query)) {
+					if(limit!=-1) pstmt.setInt(1, limit);
+					ResultSet rs=pstmt.executeQuery();
+					while(rs.next()) {
+						double score=rs.getDouble(2);
+						if(percent) score=score/rs.getInt(3)*100d;
+						result.accept(rs.getString(1), score);
+					}
+				}
+			}finally {
+				stat.executeUpdate("delete from temp.prnet_text_keys");
+				issued(statements);
+			}
+		}
+	}
+	
+	//the with clause that ends with the scores of the found authors
+	private static String scoreQuery(String table, boolean ignoreLow, boolean highest, int min, int max) {
+		String condition="";
+		if(max>-1 && min>-1) {
+			condition=" and t.\"count\">="+min+" and t.\"count\"<="+max;
+		}else if(min>-1) {
+			condition=" and t.\"count\">="+min;
+		}
+		//a count of 0 is either ignored or counted as 1
+		if(ignoreLow) condition+=" and coalesce(t.\"count\", 0)!=0";
+		
+		String query="with \"matches\" as (select t.\"author\", t.\"key\", k.\"n\", "
+				+ "case when coalesce(t.\"count\", 0)=0 then 1 else t.\"count\" end as \"pr\" "
+				+ "from temp.prnet_text_keys k join \""+table+"\" t on t.\"key\"=k.\"key\" where 1"+condition+")";
+		
+		if(highest) {
+			query+=", \"best\" as (select \"key\", max(\"pr\") as \"pr\" from \"matches\" group by \"key\")"
+					+ ", \"scores\" as (select m.\"author\", sum(m.\"pr\"*m.\"n\") as \"score\" from \"matches\" m "
+					+ "join \"best\" b on m.\"key\"=b.\"key\" and m.\"pr\"=b.\"pr\" group by m.\"author\")";
+		}else {
+			query+=", \"scores\" as (select \"author\", sum(\"pr\"*\"n\") as \"score\" from \"matches\" group by \"author\")";
+		}
+		return query;
+	}
+	
+	//the k best authors, the percentage is computed like in java and a total of 0 is ranked as infinity
+	private static String rankQuery(String table, boolean percent) {
+		String order=" order by 2 desc, 1 limit ?";
+		if(!percent) return " select \"author\", \"score\" from \"scores\""+order;
+		return ", \"totals\" as (select a.\"author\", sum(a.\"count\") as \"total\" from \""+table+"\" a "
+				+ "where a.\"author\" in (select \"author\" from \"scores\") group by a.\"author\") "
+				+ "select s.\"author\", case when coalesce(t.\"total\", 0)=0 then 9e999 "
+				+ "else s.\"score\"*1.0/t.\"total\"*100.0 end from \"scores\" s join \"totals\" t on t.\"author\"=s.\"author\""+order;
+	}
+	
+	
 	public static <T extends Serializable> List<BasePattern<T>> getAllPatternsByAuthor(String author, Aspect<T> aspect, Connection conn) throws ClassNotFoundException, SQLException, IOException {
-		return BlobHandler.get("select blob from "+aspect.table()+" where author='"+author+"'", conn);
+		PatternCodec<T> codec=AspectManager.getCodec(aspect);
+		issued(1);
+		return BlobHandler.get("select blob from "+aspect.table()+" where author='"+author+"'", conn, blob->codec.decode(blob, aspect.comparison()));
 	}
 	
 	
 	public static <T extends Serializable> List<BasePattern<T>> getAllPatternsByAuthor(String author, Aspect<T> aspect, InferedBlobHandler<BasePattern<T>> ibh) throws ClassNotFoundException, SQLException, IOException {
-		return ibh.get("select blob from "+aspect.table()+" where author='"+author+"'");
+		PatternCodec<T> codec=AspectManager.getCodec(aspect);
+		issued(1);
+		return ibh.get("select blob from "+aspect.table()+" where author='"+author+"'", blob->codec.decode(blob, aspect.comparison()));
+	}
+	
+	
+	/**
+	 * Reads all patterns of an author lazily, see {@link BlobHandler#stream(String, Connection, int, BlobHandler.Decoder)}.
+	 * The stream has to be closed after it was used.
+	 * 
+	 * @param author The author
+	 * @param aspect The {@link Aspect} of the patterns
+	 * @param conn The {@link Connection} to the database
+	 * @param fetchSize The amount of rows the driver fetches at once
+	 * @return A stream of all patterns of the author
+	 * @throws SQLException
+	 */
+	public static <T extends Serializable> Stream<BasePattern<T>> streamAllPatternsByAuthor(String author, Aspect<T> aspect, Connection conn, int fetchSize) throws SQLException {
+		PatternCodec<T> codec=AspectManager.getCodec(aspect);
+		issued(1);
+		return BlobHandler.stream("select blob from "+aspect.table()+" where author='"+author+"'", conn, fetchSize, blob->codec.decode(blob, aspect.comparison()));
 	}
 	
 	
+	/**
+	 * Saves a single pattern. Since the table has a primary key on key and author, a pattern can't be stored as a
+	 * second row anymore: its count is added to the count of an existing row with the same upsert as
+	 * {@link #savePatternsAsUniques(List, String, Aspect, Connection)}, which also skips the empty pattern.
+	 */
 	public static <T extends Serializable> void savePattern(Pattern<T> pattern, String author, Aspect<T> aspect, Connection conn) throws IOException, SQLException, ClassNotFoundException {
-		BlobHandler.insert(pattern.getRawType(), "insert into "+aspect.table()+" values('"+PatternUsage.createPatternKey(aspect, pattern)+"', '"+author+"', "+pattern.getDefaultCount()+", ?)", conn);
+		savePatternsAsUniques(List.of(pattern), author, aspect, conn);
 	}
 	
 	
@@ -43,10 +283,55 @@ abstract class SQLoperations {
 			if(stat.executeQuery("select exists("+baseExp+")").getBoolean(1)) {
 				int count=stat.executeQuery(baseExp).getInt(1)+pattern.getDefaultCount();
 				stat.executeUpdate("update "+table+" set count="+count+" where key='"+key+"' and author='"+author+"'");
+				issued(3);
 			}else {
-				BlobHandler.insert(pattern.getRawType(), "insert into "+aspect.table()+" values('"+PatternUsage.createPatternKey(aspect, pattern)+"', '"+author+"', "+pattern.getDefaultCount()+", ?)", stat.getConnection());
+				BlobHandler.insertBlob(AspectManager.getCodec(aspect).encode(pattern.getRawType()), "insert into "+aspect.table()+" values('"+PatternUsage.createPatternKey(aspect, pattern)+"', '"+author+"', "+pattern.getDefaultCount()+", ?)", stat.getConnection());
+				issued(2);
 			}
 		}
 	}
 	
+	
+	/**
+	 * Saves all patterns as uniques like {@link #savePatternAsUniques(Pattern, String, Aspect, Statement)} but with one
+	 * prepared upsert that is sent in batches. This needs the primary key created by {@link #createTable(String, Statement)}
+	 * and SQLite 3.24 or newer.
+	 */
+	public static <T extends Serializable> void savePatternsAsUniques(List<Pattern<T>> patterns, String author, Aspect<T> aspect, Connection conn) throws IOException, SQLException {
+		PatternCodec<T> codec=AspectManager.getCodec(aspect);
+		String sql="insert into "+aspect.table()+" (key, author, count, blob) values(?, ?, ?, ?) "
+				+ "on conflict(key, author) do update set count=count+excluded.count";
+		
+		try(PreparedStatement pstmt=conn.prepareStatement(sql)) {
+			int batched=0;
+			for(Pattern<T> cur:patterns) {
+				String key=PatternUsage.createPatternKey(aspect, cur);
+				if(key.equals("{}")) continue;
+				
+				pstmt.setString(1, key);
+				pstmt.setString(2, author);
+				pstmt.setInt(3, cur.getDefaultCount());
+				pstmt.setBytes(4, codec.encode(cur.getRawType()));
+				pstmt.addBatch();
+				
+				if(++batched==BATCH_SIZE) {
+					pstmt.executeBatch();
+					issued(1);
+					batched=0;
+				}
+			}
+			if(batched>0) {
+				pstmt.executeBatch();
+				issued(1);
+			}
+		}
+	}
+	
+	
+	//counts the statements that were sent to the database
+	private static void issued(long statements) {
+		Metrics metrics=Metrics.get();
+		if(metrics.isEnabled()) metrics.count(Metrics.Counter.SQL_STATEMENTS, statements);
+	}
+
 }
@@ -0,0 +1,92 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Limits of a pattern search. The search stops following a suffix as soon as it can't produce an allowed
+ * pattern anymore, so unproductive patterns are never built instead of being filtered before they are saved.
+ * All {@link SearchMode}s return the same patterns under the same limits.<p>
+ * The limits of an {@link AspectManager.Aspect} are set with {@link AspectManager#setLimits(AspectManager.Aspect, SearchLimits)}.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ * @param minLiterals The least amount of elements that aren't wildcards in a pattern
+ * @param maxLength The most elements of a pattern, wildcards included. The search ends the pattern when it's reached.
+ * @param maxGap The most elements in a row a single wildcard may stand for. The search ends the pattern with the
+ * 	wildcard if the gap gets longer.
+ * @param minSupport The least amount of inputs a pattern has to be found in, which is its count plus one
+ */
+public record SearchLimits(int minLiterals, int maxLength, int maxGap, int minSupport) {
+	
+	/**
+	 * No limits, the search finds the same patterns as without limits.
+	 */
+	public static final SearchLimits NONE=new SearchLimits(0, Integer.MAX_VALUE, Integer.MAX_VALUE, 1);
+	
+	/**
+	 * @throws IllegalArgumentException If a limit would reject every pattern
+	 */
+	public SearchLimits {
+		if(minLiterals<0 || maxLength<1 || maxGap<0 || minSupport<1) throw new IllegalArgumentException("Invalid limits: "+minLiterals+", "+maxLength+", "+maxGap+", "+minSupport);
+	}
+	
+	
+	/**
+	 * @param minLiterals The least amount of elements that aren't wildcards in a pattern
+	 * @return These limits with the given minimum
+	 */
+	public SearchLimits withMinLiterals(int minLiterals) {
+		return new SearchLimits(minLiterals, maxLength, maxGap, minSupport);
+	}
+	
+	/**
+	 * @param maxLength The most elements of a pattern, wildcards included
+	 * @return These limits with the given maximum
+	 */
+	public SearchLimits withMaxLength(int maxLength) {
+		return new SearchLimits(minLiterals, maxLength, maxGap, minSupport);
+	}
+	
+	/**
+	 * @param maxGap The most elements in a row a single wildcard may stand for
+	 * @return These limits with the given maximum
+	 */
+	public SearchLimits withMaxGap(int maxGap) {
+		return new SearchLimits(minLiterals, maxLength, maxGap, minSupport);
+	}
+	
+	/**
+	 * @param minSupport The least amount of inputs a pattern has to be found in
+	 * @return These limits with the given minimum
+	 */
+	public SearchLimits withMinSupport(int minSupport) {
+		return new SearchLimits(minLiterals, maxLength, maxGap, minSupport);
+	}
+	
+	/**
+	 * @return If these limits don't restrict the search
+	 */
+	public boolean isUnlimited() {
+		return equals(NONE);
+	}
+	
+	
+	/**
+	 * Removes the patterns that were found in less than {@link #minSupport()} inputs, the only limit that can't be
+	 * checked before all inputs are searched.
+	 */
+	<T> List<Pattern<T>> supported(List<Pattern<T>> patterns) {
+		if(minSupport<=1) return patterns;
+		List<Pattern<T>> ret=new ArrayList<>();
+		for(Pattern<T> cur:patterns) {
+			if(cur.getDefaultCount()+1>=minSupport) ret.add(cur);
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+/**
+ * The different ways {@link PatternSearch} can compare two lists with each other.<p>
+ * All modes but {@link #MAXIMAL_MATCHES} return the same patterns in the same order, they only differ in how the
+ * lists are processed internally.
+ * 
+ * @author Elija Giesbrecht
+ * @see prNet.PatternUsage#findPatterns(Comparison, java.util.List, SearchMode)
+ */
+public enum SearchMode {
+	/**
+	 * The original implementation which copies the compared list into a {@link java.util.LinkedList} for every suffix
+	 * of the second list and removes all passed elements from it.
+	 */
+	LINKED,
+	
+	/**
+	 * Converts every input once into a random-access list and moves a cursor over it instead of removing elements.
+	 * No list is copied per suffix.
+	 */
+	INDEXED,
+	
+	/**
+	 * Maps every element to a symbol through the equivalence key and builds one generalised suffix array over all
+	 * inputs. A run of elements that follow each other in both lists is found with one query of the longest common
+	 * prefix instead of one lookup per element, which helps inputs that share long parts like texts.<p>
+	 * This is the equivalence mode of {@link #MAXIMAL_MATCHES}: it still follows every suffix of every pair, so its
+	 * worst case is the same as the one of the other modes, but it finds the same patterns.
+	 * The comparison needs an equivalence key, otherwise {@link #INDEXED} is used.
+	 */
+	SUFFIX_ARRAY,
+	
+	/**
+	 * Uses the same suffix array as {@link #SUFFIX_ARRAY} but doesn't follow every suffix. Two scans over the suffix
+	 * and LCP arrays find the longest match of every position of the other lists in a list, then every other list is
+	 * walked once and the matches that follow each other in both lists are chained, with a wildcard where an element
+	 * has no match. A search over lists with n elements in total takes O(n log n) to build the suffix array and
+	 * O(n) per list afterwards instead of growing cubically with the length of the lists.<p>
+	 * The patterns aren't the same as the ones of the other modes: every element of a pair is part of one pattern
+	 * only, so the patterns that start in the middle of another one aren't found. On small inputs
+	 * {@link #SUFFIX_ARRAY} finds all of them. The comparison needs an equivalence key, otherwise {@link #INDEXED}
+	 * is used.
+	 */
+	MAXIMAL_MATCHES
+}
@@ -0,0 +1,406 @@
+/*
+ * This file is part of pattern recognition network (prNet), a program to find patterns in data-structures
+ * Copyright (C) 2022  Elija Giesbrecht
+ * Published under GPLv3-or-later license
+ */
+package prNet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A generalised suffix array over all inputs of a search, used by {@link SearchMode#SUFFIX_ARRAY} and
+ * {@link SearchMode#MAXIMAL_MATCHES}.<p>
+ * Every element is mapped to a symbol through the equivalence key of the {@link Comparison} and all inputs are
+ * concatenated with a unique separator after each of them.<p>
+ * {@link #findPatterns(int, SearchLimits)} is the equivalence mode: its pair search is the same as
+ * {@link PatternSearch#findPatternsInPair(KeyIndex, List, Comparison)}, so the found patterns are the same as the
+ * ones of the other {@link SearchMode}s. The longest common prefix of any two suffixes is answered in constant time
+ * by a sparse table over the LCP array, so a run of consecutive equal elements of two inputs is consumed in one step,
+ * but every suffix of every pair is still followed.<p>
+ * {@link #findMaximalMatches(int, SearchLimits)} runs in linear time per input instead. Two scans over the suffix
+ * and LCP arrays give every position of the other inputs its longest match in the input, then every other input
+ * is walked once and the matches that follow each other in both inputs are chained with wildcards.
+ * 
+ * @author Elija Giesbrecht
+ * 
+ * @param <T> The type of elements in the inputs
+ */
+class SuffixIndex<T> {
+	
+	//the symbol of null, it's a wildcard in the found element lists
+	private static final int NULL=0;
+	
+	private List<List<T>> arrays;
+	
+	//the symbols of all inputs and separators, the start of every input in it
+	private int[] text, offsets;
+	
+	private int alphabet;
+	
+	//the start of every suffix by its rank and the rank of every suffix
+	private int[] suffixes, rank;
+	
+	//the longest common prefix of the suffixes with the ranks r-1 and r
+	private int[] lcpValues;
+	
+	//lcp[j] is the minimum of 2^j entries of lcpValues, it's only built for the equivalence mode
+	private int[][] lcp;
+	
+	/**
+	 * Creates the suffix array over the given inputs.
+	 * 
+	 * @param arrays All inputs, each of them should be a random-access list
+	 * @param comparison The {@link Comparison} used to check if 2 elements are equal, it must have an equivalence key
+	 */
+	SuffixIndex(List<List<T>> arrays, Comparison<T, T> comparison) {
+		this.arrays=arrays;
+		this.offsets=new int[arrays.size()];
+		int total=arrays.size();
+		for(List<T> cur:arrays) total+=cur.size();
+		
+		Map<Object, Integer> symbols=new HashMap<>();
+		int[] symbolText=new int[total];
+		int pos=0;
+		for(int i=0; i<arrays.size(); i++) {
+			offsets[i]=pos;
+			for(T cur:arrays.get(i)) {
+				if(cur==null) {
+					symbolText[pos++]=NULL;
+					continue;
+				}
+				Integer symbol=symbols.get(comparison.equivalenceKey(cur));
+				if(symbol==null) {
+					symbol=symbols.size()+1;
+					symbols.put(comparison.equivalenceKey(cur), symbol);
+				}
+				symbolText[pos++]=symbol;
+			}
+			pos++;
+		}
+		//the separators come after all symbols and are different from each other
+		this.alphabet=symbols.size()+1;
+		for(int i=0; i<arrays.size(); i++) symbolText[offsets[i]+arrays.get(i).size()]=alphabet+i;
+		this.text=symbolText;
+		
+		this.suffixes=suffixArray(text, alphabet+arrays.size());
+		this.rank=new int[text.length];
+		for(int r=0; r<suffixes.length; r++) rank[suffixes[r]]=r;
+		this.lcpValues=lcpArray(text, suffixes, rank);
+	}
+	
+	
+	/**
+	 * Does the same as {@link PatternSearch#findPatternsInOrderIndexed(List, int, Comparison, SearchLimits)}.
+	 * 
+	 * @param index The position of the input that is compared with all others
+	 * @param limits The {@link SearchLimits} of the element lists
+	 * @return All found element lists
+	 */
+	List<List<T>> findPatterns(int index, SearchLimits limits) {
+		if(lcp==null) lcp=sparseTable(lcpValues);
+		List<List<T>> globret=new ArrayList<>();
+		Set<IntPatternSearch.Key> seen=new HashSet<>();
+		Positions index1=new Positions(index);
+		for(int j=0; j<arrays.size(); j++) {
+			if(j==index) continue;
+			findPatternsInPair(index, index1, j, limits, globret, seen);
+		}
+		return globret;
+	}
+	
+	/**
+	 * Searches every suffix of the input j in the input i like
+	 * {@link PatternSearch#findPatternsInPair(KeyIndex, List, Comparison, SearchLimits)} and adds all element lists
+	 * to globret that aren't in seen yet.
+	 */
+	private void findPatternsInPair(int i, Positions index1, int j, SearchLimits limits, List<List<T>> globret, Set<IntPatternSearch.Key> seen) {
+		List<T> list1=arrays.get(i);
+		int off1=offsets[i], off2=offsets[j];
+		int size1=list1.size(), size2=arrays.get(j).size();
+		//the symbol of every element, wildcards and null are IntPattern.WILDCARD, and its position in list1
+		int[] cells=new int[size2], from=new int[size2];
+		IntPatternSearch.ValueSets retSets=new IntPatternSearch.ValueSets();
+		int minLiterals=limits.minLiterals(), maxLength=limits.maxLength(), maxGap=limits.maxGap();
+		for(int start=0; start<size2 && size2-start>=minLiterals; start++) {
+			int length=0, cursor=0, k=start, literals=0, gap=0;
+			while(k<size2 && length<maxLength && literals+size2-k>=minLiterals) {
+				if(cursor>=size1) {
+					//nothing left to find, the rest would only be collapsed into one wildcard
+					if(length>0 && cells[length-1]!=IntPattern.WILDCARD) {
+						from[length]=-1;
+						cells[length++]=IntPattern.WILDCARD;
+					}
+					break;
+				}
+				int pos=index1.indexOf(text[off2+k], cursor);
+				if(pos==-1) {
+					if(length>0 && cells[length-1]!=IntPattern.WILDCARD) {
+						from[length]=-1;
+						cells[length++]=IntPattern.WILDCARD;
+					}
+					//the wildcard would stand for too many elements
+					if(length>0 && ++gap>maxGap) break;
+					k++;
+				}else {
+					//every element of the common prefix would be found right after the previous one
+					int run=Math.min(longestCommonPrefix(off1+pos, off2+k), maxLength-length);
+					for(int r=0; r<run; r++) {
+						int symbol=text[off1+pos+r];
+						from[length]=pos+r;
+						cells[length++]=symbol==NULL? IntPattern.WILDCARD: symbol;
+						if(symbol!=NULL) literals++;
+					}
+					cursor=pos+run;
+					k+=run;
+					gap=0;
+				}
+			}
+			if(literals<minLiterals) continue;
+			
+			if(retSets.add(cells, length) && seen.add(new IntPatternSearch.Key(Arrays.copyOf(cells, length)))) {
+				List<T> tempret=new ArrayList<>(length);
+				for(int c=0; c<length; c++) tempret.add(from[c]<0? null: list1.get(from[c]));
+				globret.add(tempret);
+			}
+		}
+	}
+	
+	/**
+	 * Finds the element lists of the input at the given position with all others in linear time, see
+	 * {@link SearchMode#MAXIMAL_MATCHES}. A match is the longest common prefix of a suffix of another input with any
+	 * suffix of this input. Every other input is walked once: a match that starts after the end of the previous one
+	 * in this input continues the element list, an element without a match is a wildcard and a match that lies
+	 * before the previous one ends the list with a wildcard and starts the next one. So every position is used by one
+	 * element list only and the element lists of a pair don't overlap.<p>
+	 * The element lists are within the limits, equal ones are only returned once but unlike the equivalence mode an
+	 * element list whose elements are all contained in another one is kept.
+	 * 
+	 * @param index The position of the input that is compared with all others
+	 * @param limits The {@link SearchLimits} of the element lists
+	 * @return All found element lists
+	 */
+	List<List<T>> findMaximalMatches(int index, SearchLimits limits) {
+		int n=text.length, off1=offsets[index], end1=off1+arrays.get(index).size();
+		//the length of the longest match of every position with the input and where the match starts
+		int[] matchLength=new int[n], matchStart=new int[n];
+		
+		//the suffixes of the input before every suffix in the suffix array, the nearest one has the longest match
+		int last=-1, min=0;
+		for(int r=0; r<n; r++) {
+			int pos=suffixes[r];
+			min=Math.min(min, lcpValues[r]);
+			if(pos>=off1 && pos<end1) {
+				last=pos;
+				min=Integer.MAX_VALUE;
+			}else if(last!=-1) {
+				matchLength[pos]=min;
+				matchStart[pos]=last;
+			}
+		}
+		//the ones after it, an equally long match that starts earlier is preferred
+		last=-1;
+		min=0;
+		for(int r=n-1; r>=0; r--) {
+			int pos=suffixes[r];
+			if(pos>=off1 && pos<end1) {
+				last=pos;
+				min=Integer.MAX_VALUE;
+			}else if(last!=-1 && (min>matchLength[pos] || min==matchLength[pos] && last<matchStart[pos])) {
+				matchLength[pos]=min;
+				matchStart[pos]=last;
+			}
+			min=Math.min(min, lcpValues[r]);
+		}
+		
+		List<List<T>> globret=new ArrayList<>();
+		Set<IntPatternSearch.Key> seen=new HashSet<>();
+		for(int j=0; j<arrays.size(); j++) {
+			if(j==index) continue;
+			chainMatches(index, j, matchLength, matchStart, limits, globret, seen);
+		}
+		return globret;
+	}
+	
+	/**
+	 * Walks the input j once and chains its matches with the input i, see {@link #findMaximalMatches(int, SearchLimits)}.
+	 */
+	private void chainMatches(int i, int j, int[] matchLength, int[] matchStart, SearchLimits limits, List<List<T>> globret, Set<IntPatternSearch.Key> seen) {
+		List<T> list1=arrays.get(i);
+		int off1=offsets[i], off2=offsets[j], size2=arrays.get(j).size();
+		int maxLength=limits.maxLength(), maxGap=limits.maxGap();
+		//the symbol of every element, wildcards and null are IntPattern.WILDCARD, and its position in list1
+		int[] cells=new int[Math.min(size2+1, maxLength)], from=new int[cells.length];
+		int length=0, literals=0, cursor=0, gap=0;
+		for(int p=0; p<size2;) {
+			int run=matchLength[off2+p], pos=matchStart[off2+p]-off1;
+			if(run>0 && (length==0 || pos>=cursor)) {
+				run=Math.min(run, maxLength-length);
+				for(int r=0; r<run; r++) {
+					int symbol=text[off1+pos+r];
+					from[length]=pos+r;
+					cells[length++]=symbol==NULL? IntPattern.WILDCARD: symbol;
+					if(symbol!=NULL) literals++;
+				}
+				cursor=pos+run;
+				p+=run;
+				gap=0;
+				if(length<maxLength) continue;
+			}else {
+				if(length==0) {
+					p++;
+					continue;
+				}
+				//the element isn't found after the previous match
+				if(cells[length-1]!=IntPattern.WILDCARD) {
+					from[length]=-1;
+					cells[length++]=IntPattern.WILDCARD;
+				}
+				if(run==0 && ++gap<=maxGap && length<maxLength) {
+					p++;
+					continue;
+				}
+				//the wildcard would stand for too many elements
+				if(run==0) p++;
+			}
+			
+			//the element list is complete, a match before it starts the next one
+			addMatches(list1, cells, from, length, literals, limits, globret, seen);
+			length=0;
+			literals=0;
+			cursor=0;
+			gap=0;
+		}
+		addMatches(list1, cells, from, length, literals, limits, globret, seen);
+	}
+	
+	private void addMatches(List<T> list1, int[] cells, int[] from, int length, int literals, SearchLimits limits, List<List<T>> globret, Set<IntPatternSearch.Key> seen) {
+		if(length==0 || literals<limits.minLiterals() || !seen.add(new IntPatternSearch.Key(Arrays.copyOf(cells, length)))) return;
+		List<T> tempret=new ArrayList<>(length);
+		for(int c=0; c<length; c++) tempret.add(from[c]<0? null: list1.get(from[c]));
+		globret.add(tempret);
+	}
+	
+	/**
+	 * The positions of every symbol in one input, the symbols are dense, so they are looked up without hashing.
+	 */
+	private final class Positions {
+		
+		//the positions of the symbol s are positions[starts[s]] to positions[starts[s+1]-1]
+		private final int[] starts, positions;
+		
+		Positions(int index) {
+			int offset=offsets[index], size=arrays.get(index).size();
+			this.starts=new int[alphabet+1];
+			this.positions=new int[size];
+			for(int i=0; i<size; i++) starts[text[offset+i]+1]++;
+			for(int s=0; s<alphabet; s++) starts[s+1]+=starts[s];
+			int[] next=Arrays.copyOf(starts, alphabet);
+			for(int i=0; i<size; i++) positions[next[text[offset+i]]++]=i;
+		}
+		
+		/**
+		 * @return The first position of the symbol at or after from or -1
+		 */
+		int indexOf(int symbol, int from) {
+			int start=starts[symbol], end=starts[symbol+1];
+			//the symbol doesn't occur or only before from
+			if(start==end || positions[end-1]<from) return -1;
+			if(positions[start]>=from) return positions[start];
+			int p=Arrays.binarySearch(positions, start, end, from);
+			return p<0? positions[-p-1]: positions[p];
+		}
+	}
+	
+	/**
+	 * @return The length of the longest common prefix of the suffixes at the given positions of the text
+	 */
+	int longestCommonPrefix(int pos1, int pos2) {
+		if(pos1==pos2) return text.length-pos1;
+		int r1=Math.min(rank[pos1], rank[pos2])+1, r2=Math.max(rank[pos1], rank[pos2]);
+		int level=31-Integer.numberOfLeadingZeros(r2-r1+1);
+		return Math.min(lcp[level][r1], lcp[level][r2-(1<<level)+1]);
+	}
+	
+	
+	/**
+	 * Sorts all suffixes by prefix doubling, every round sorts by the ranks of the two halves with a counting sort.
+	 * 
+	 * @param text The symbols, all of them are between 0 and alphabet-1
+	 * @param alphabet The amount of different symbols
+	 * @return The start positions of all suffixes in sorted order
+	 */
+	static int[] suffixArray(int[] text, int alphabet) {
+		int n=text.length;
+		int[] ret=new int[n], classes=text.clone(), tmp=new int[n], next=new int[n];
+		int[] count=new int[Math.max(alphabet, n)+1];
+		for(int cur:text) count[cur+1]++;
+		for(int i=1; i<count.length; i++) count[i]+=count[i-1];
+		for(int i=0; i<n; i++) ret[count[text[i]]++]=i;
+		
+		int classCount=alphabet;
+		for(int k=1; k<n; k<<=1) {
+			//sorted by the second half, suffixes without a second half come first
+			int p=0;
+			for(int i=n-k; i<n; i++) tmp[p++]=i;
+			for(int i=0; i<n; i++) {
+				if(ret[i]>=k) tmp[p++]=ret[i]-k;
+			}
+			//a stable counting sort by the first half
+			Arrays.fill(count, 0, classCount+1, 0);
+			for(int i=0; i<n; i++) count[classes[tmp[i]]+1]++;
+			for(int i=1; i<=classCount; i++) count[i]+=count[i-1];
+			for(int i=0; i<n; i++) ret[count[classes[tmp[i]]]++]=tmp[i];
+			
+			next[ret[0]]=0;
+			classCount=1;
+			for(int i=1; i<n; i++) {
+				int a=ret[i-1], b=ret[i];
+				int secondA=a+k<n? classes[a+k]: -1, secondB=b+k<n? classes[b+k]: -1;
+				if(classes[a]!=classes[b] || secondA!=secondB) classCount++;
+				next[b]=classCount-1;
+			}
+			int[] swap=classes;
+			classes=next;
+			next=swap;
+			if(classCount==n) break;
+		}
+		return ret;
+	}
+	
+	/**
+	 * Computes the longest common prefix of every suffix with the one before it in the suffix array (Kasai et al.).
+	 */
+	static int[] lcpArray(int[] text, int[] suffixes, int[] rank) {
+		int n=text.length, h=0;
+		int[] ret=new int[n];
+		for(int i=0; i<n; i++) {
+			if(rank[i]==0) {
+				h=0;
+				continue;
+			}
+			int j=suffixes[rank[i]-1];
+			while(i+h<n && j+h<n && text[i+h]==text[j+h]) h++;
+			ret[rank[i]]=h;
+			if(h>0) h--;
+		}
+		return ret;
+	}
+	
+	private static int[][] sparseTable(int[] values) {
+		int levels=Math.max(1, 32-Integer.numberOfLeadingZeros(values.length));
+		int[][] ret=new int[levels][];
+		ret[0]=values;
+		for(int j=1; j<levels; j++) {
+			int width=1<<j, half=width>>1;
+			ret[j]=new int[values.length-width+1];
+			for(int i=0; i<ret[j].length; i++) ret[j][i]=Math.min(ret[j-1][i], ret[j-1][i+half]);
+		}
+		return ret;
+	}
+}
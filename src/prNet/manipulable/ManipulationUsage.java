@@ -7,11 +7,12 @@ package prNet.manipulable;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 
 import prNet.BasePattern;
 import prNet.Comparison;
+import prNet.KeyIndex;
+import prNet.Metrics;
 import prNet.PatternUsage;
 
 public abstract class ManipulationUsage extends PatternUsage {
@@ -23,68 +24,56 @@ public abstract class ManipulationUsage extends PatternUsage {
 	public static <T, P extends BasePattern<T>> boolean manipulate(List<T> environment, P pattern, Comparison<T, T> manipulationClause, Transition<T> transition) {
 		Comparison<T, T> com=manipulationClause;
 		List<T>
-			patternEnv=new LinkedList<>(pattern.getElements()),
-			env=new LinkedList<>(environment);
+			patternEnv=new ArrayList<>(pattern.getElements()),
+			env=new ArrayList<>(environment);
 		
 		for(T t:env) {
 			if(t==null) throw new IllegalArgumentException("Argument cannot be null");
 		}
 		
-		return manipulate(env, patternEnv, com, transition);
+		//the environment is indexed once, the recursion only moves positions over it
+		return manipulate(new KeyIndex<>(env, com), 0, patternEnv, 0, com, transition);
 	}
 	
-	private static <T> boolean manipulate(List<T> env, List<T> patternEnv, Comparison<T, T> com, Transition<T> transition) {
+	private static <T> boolean manipulate(KeyIndex<T> env, int envPos, List<T> patternEnv, int patternPos, Comparison<T, T> com, Transition<T> transition) {
 		HashMap<T, T> soFar=new HashMap<>();
-		while(env.size()>0 && patternEnv.size()>0) {
-			if(patternEnv.get(0)==null) {
-				if(patternEnv.size()==1) return false;
-				T next=patternEnv.get(1);
-				List<Integer> indices=allIndicesOf(env, next, com);
+		while(envPos<env.size() && patternPos<patternEnv.size()) {
+			if(patternEnv.get(patternPos)==null) {
+				if(patternPos==patternEnv.size()-1) return false;
+				T next=patternEnv.get(patternPos+1);
+				List<Integer> indices=env.allIndicesOf(next, envPos);
 				
+				int tried=0;
 				for(int c:indices) {
-					List<T>
-						newEnv=new LinkedList<>(env),
-						newPatternEnv=new LinkedList<>(patternEnv);
-					newPatternEnv.remove(0);
-					removeIndicesTillBorder(newEnv, c-1);
-					
-					if(manipulate(newEnv, newPatternEnv, com, transition)) {
+					tried++;
+					if(manipulate(env, c, patternEnv, patternPos+1, com, transition)) {
 						applyManipulation(soFar, transition);
+						branched(tried);
 						return true;
 					}
 				}
 				
+				branched(tried);
 				return false;
 			}else {
-				if(!com.compare(env.get(0), patternEnv.get(0))) return false;
-				else soFar.put(env.get(0), patternEnv.get(0));
+				if(!com.compare(env.get(envPos), patternEnv.get(patternPos))) return false;
+				else soFar.put(env.get(envPos), patternEnv.get(patternPos));
 			}
 			
-			env.remove(0);
-			patternEnv.remove(0);
+			envPos++;
+			patternPos++;
 		}
 		
 		applyManipulation(soFar, transition);
-		return env.size()==0 && patternEnv.size()==0;
+		return envPos==env.size() && patternPos==patternEnv.size();
 	}
 	
-	private static <T> void applyManipulation(HashMap<T, T> soFar, Transition<T> transition) {
-		soFar.forEach(transition::apply);
-	}
-	
-	private static <T> List<Integer> allIndicesOf(List<T> list, T toFind, Comparison<T, T> com) {
-		List<Integer> ret=new ArrayList<>();
-		for(int i=0; i<list.size(); i++) {
-			if(list.get(i)==null && toFind==null) ret.add(i);
-			else if(list.get(i)==null || toFind==null);
-			else {
-				if(com.compare(list.get(i), toFind)) ret.add(i);
-			}
-		}
-		return ret;
+	private static void branched(int tried) {
+		Metrics metrics=Metrics.get();
+		if(metrics.isEnabled()) metrics.count(Metrics.Counter.MATCH_BRANCHES, tried);
 	}
 	
-	private static <T> void removeIndicesTillBorder(List<T> list, int border) {
-		for(int i=0; i<=border; i++) list.remove(0);
+	private static <T> void applyManipulation(HashMap<T, T> soFar, Transition<T> transition) {
+		soFar.forEach(transition::apply);
 	}
 }